@@ -3,5 +3,6 @@ package com.web.backend.common;
 public enum SocketEventType {
     ERROR,
     MESSAGE,
+    ACK,
     NOTIFICATIONS
 }
@@ -0,0 +1,73 @@
+package com.web.backend.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.repository.ConversationRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off backfill of the {@code conversations} inbox from {@code messages},
+ * for conversations whose last message predates the inbox consumer. Runs off
+ * the startup thread on the first node that takes the lock, and is not run
+ * again once the done marker is set.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+@Slf4j(topic = "CONVERSATION-INBOX-BACKFILL")
+public class ConversationInboxBackfill {
+
+    private static final String LOCK_KEY = "lock:inbox_backfill";
+    private static final String DONE_KEY = "migration:inbox_backfill";
+
+    private final ConversationRepository conversationRepository;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.chat.inbox.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.inbox.backfill.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.chat.inbox.backfill.lock-ttl:30m}")
+    private Duration lockTtl;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            Thread.ofVirtual().name("conversation-inbox-backfill").start(this::backfill);
+        }
+    }
+
+    void backfill() {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(DONE_KEY))) {
+                return;
+            }
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "locked", lockTtl);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.debug("Inbox backfill is already being executed by another server node");
+                return;
+            }
+            try {
+                long created = conversationRepository.backfillFromMessages(batchSize);
+                stringRedisTemplate.opsForValue().set(DONE_KEY, String.valueOf(System.currentTimeMillis()));
+                log.info("Inbox backfill created {} conversations", created);
+            } finally {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        } catch (Exception e) {
+            log.error("Inbox backfill failed: {}", e.getMessage(), e);
+        }
+    }
+}
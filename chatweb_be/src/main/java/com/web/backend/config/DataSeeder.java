@@ -12,7 +12,6 @@ import com.web.backend.service.util.CuckooFilterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -45,8 +44,6 @@ public class DataSeeder implements CommandLineRunner {
     private static final String ADMIN_3_STRING = "Admin";
     private static final String ADMIN_EXAMPLE_COM_STRING = "admin@example.com";
     private static final String NG_I_D_NG_C_B_N_STRING = "Người dùng cơ bản";
-    private static final String ONLINE_USERS_COUNT_STRING = "online_users_count";
-    private static final String ONLINE_USERS_STRING = "online_users";
     private static final String QU_N_TR_VI_N_H_TH_NG_STRING = "Quản trị viên hệ thống";
     private static final String SUPER_STRING = "Super";
     private static final String USER_STRING = "USER";
@@ -146,20 +143,4 @@ public class DataSeeder implements CommandLineRunner {
         }
         roleRepository.save(role);
     }
-
-    @Bean
-    public CommandLineRunner cleanupOnlineStatus() {
-        return args -> {
-            String ONLINE_USERS_KEY = ONLINE_USERS_STRING;
-            String ONLINE_USERS_COUNT_KEY = ONLINE_USERS_COUNT_STRING;
-
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(ONLINE_USERS_KEY))) {
-                redisTemplate.delete(ONLINE_USERS_KEY);
-            }
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(ONLINE_USERS_COUNT_KEY))) {
-                redisTemplate.delete(ONLINE_USERS_COUNT_KEY);
-            }
-            log.info(">>> CLEANUP: Reset Online Users state in Redis to avoid phantom data.");
-        };
-    }
 }
\ No newline at end of file
@@ -1,19 +1,90 @@
 package com.web.backend.config;
 
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.util.backoff.ExponentialBackOff;
 import org.springframework.util.backoff.FixedBackOff;
 import org.springframework.kafka.listener.ContainerProperties;
 
 @Configuration
 public class KafkaConfig {
 
+    @Value("${app.kafka.chat.partitions:1}")
+    private int chatPartitions;
+
+    @Value("${app.kafka.chat.listener-concurrency:1}")
+    private int chatListenerConcurrency;
+
+    @Value("${spring.kafka.topic.chat.messages}.DLT")
+    private String chatDeadLetterTopic;
+
+    @Bean
+    @Profile("!test")
+    public NewTopic chatMessagesTopic(@Value("${spring.kafka.topic.chat.messages}") String chatTopic) {
+        return TopicBuilder.name(chatTopic)
+                .partitions(chatPartitions)
+                .build();
+    }
+
+    /**
+     * Replays of dead-lettered chat records, read only by the write-behind
+     * group. It has as many partitions as the chat topic, so the range assignor
+     * gives a conversation's partition of both topics to the same consumer.
+     */
+    @Bean
+    @Profile("!test")
+    public NewTopic chatReplayTopic(
+            @Value("${app.kafka.chat.write-behind.replay-topic:${spring.kafka.topic.chat.messages}.replay}") String replayTopic) {
+        return TopicBuilder.name(replayTopic)
+                .partitions(chatPartitions)
+                .build();
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> chatBatchListenerFactory(
+            @NonNull ConsumerFactory<String, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+
+        factory.setBatchListener(true);
+        factory.setConcurrency(chatListenerConcurrency);
+
+        return factory;
+    }
+
+    /**
+     * Batch factory for read models that must not skip records: a failed batch
+     * is retried with an exponential backoff until it succeeds, instead of the
+     * default handler's ten immediate attempts followed by a skip.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> inboxBatchListenerFactory(
+            @NonNull ConsumerFactory<String, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+
+        factory.setBatchListener(true);
+        factory.setConcurrency(chatListenerConcurrency);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(1000L, 2.0);
+        backOff.setMaxInterval(30_000L);
+        backOff.setMaxElapsedTime(Long.MAX_VALUE);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+
+        return factory;
+    }
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> batchFactory(
             @NonNull ConsumerFactory<String, Object> consumerFactory,
@@ -22,9 +93,14 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory);
 
         factory.setBatchListener(true);
+        factory.setConcurrency(chatListenerConcurrency);
+        // The write-behind listener acks, nacks and pauses itself; see WriteBehindBackpressure
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
 
-        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate);
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, new FixedBackOff(2000L, 3));
+        // Records of the main and the replay topic both go back to the chat DLT
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (failed, ex) -> new TopicPartition(chatDeadLetterTopic, -1));
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, new FixedBackOff(0L, 0L));
         factory.setCommonErrorHandler(errorHandler);
 
         return factory;
@@ -47,4 +123,4 @@ public class KafkaConfig {
 
         return factory;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.web.backend.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
+import com.web.backend.model.SystemMessage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the indexes declared on the Mongo documents that are missing in the
+ * database, off the startup thread. Needed in prod, where
+ * {@code auto-index-creation} is off. Afterwards it logs whether every
+ * repository query shape is backed by an index.
+ */
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+@Slf4j(topic = "MONGO-INDEX-RECONCILER")
+public class MongoIndexReconciler {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.mongo.index-reconciler.enabled:true}")
+    private boolean enabled;
+
+    private record QueryShape(String query, Class<?> entity, Document keys) {
+    }
+
+    private static final List<QueryShape> QUERY_SHAPES = List.of(
+            new QueryShape("MessageRepository.findByConversationId*", ChatMessage.class,
+                    new Document("conversationId", 1).append("messageType", 1).append("timestamp", -1).append("_id", -1)),
+            new QueryShape("MessageRepository.findChangesBetween", ChatMessage.class,
+                    new Document("conversationId", 1).append("changeSeq", 1)),
+            new QueryShape("MessageRepository.countUnreadMessagesBySender*", ChatMessage.class,
+                    new Document("recipient", 1).append("status", 1).append("messageType", 1)),
+            new QueryShape("ConversationRepository.findInbox*", Conversation.class,
+                    new Document("participants", 1).append("lastTimestamp", -1).append("_id", -1)),
+            new QueryShape("SystemMessageRepository.findMessage*", SystemMessage.class,
+                    new Document("timestamp", -1).append("_id", -1)));
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            Thread.ofVirtual().name("mongo-index-reconciler").start(this::reconcile);
+        }
+    }
+
+    void reconcile() {
+        try {
+            MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+            MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+            for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+                if (entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                    reconcileEntity(entity, resolver);
+                }
+            }
+            reportCoverage();
+        } catch (Exception e) {
+            log.error("Mongo index reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reconcileEntity(MongoPersistentEntity<?> entity, MongoPersistentEntityIndexResolver resolver) {
+        IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+        List<List<Map.Entry<String, Object>>> existing = indexOps.getIndexInfo().stream()
+                .map(MongoIndexReconciler::keysOf)
+                .toList();
+
+        for (IndexDefinition definition : resolver.resolveIndexFor(entity.getTypeInformation())) {
+            if (!existing.contains(new ArrayList<>(definition.getIndexKeys().entrySet()))) {
+                String name = indexOps.ensureIndex(definition);
+                log.info("Created missing index {} on {}", name, entity.getCollection());
+            }
+        }
+    }
+
+    private void reportCoverage() {
+        for (QueryShape shape : QUERY_SHAPES) {
+            List<Map.Entry<String, Object>> wanted = new ArrayList<>(shape.keys().entrySet());
+            boolean covered = mongoTemplate.indexOps(shape.entity()).getIndexInfo().stream()
+                    .map(MongoIndexReconciler::keysOf)
+                    .anyMatch(keys -> keys.size() >= wanted.size() && keys.subList(0, wanted.size()).equals(wanted));
+            if (covered) {
+                log.info("Query {} is covered by an index", shape.query());
+            } else {
+                log.warn("Query {} is NOT covered by an index: {}", shape.query(), shape.keys().toJson());
+            }
+        }
+    }
+
+    private static List<Map.Entry<String, Object>> keysOf(IndexInfo indexInfo) {
+        Document keys = new Document();
+        for (IndexField field : indexInfo.getIndexFields()) {
+            keys.append(field.getKey(), field.getDirection() == Sort.Direction.DESC ? -1 : 1);
+        }
+        return new ArrayList<>(keys.entrySet());
+    }
+}
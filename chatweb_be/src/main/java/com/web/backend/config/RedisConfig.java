@@ -13,6 +13,11 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.web.backend.redis.ChatMessageCodec;
+import com.web.backend.redis.CompactRedisSerializer;
+import com.web.backend.redis.RegisterDataCodec;
+
+import java.util.List;
 
 @Configuration
 public class RedisConfig {
@@ -26,6 +31,9 @@ public class RedisConfig {
     @Value("${spring.data.redis.password:}")
     private String password;
 
+    @Value("${app.redis.codec.compact-writes:true}")
+    private boolean compactWrites;
+
     @Bean
     @SuppressWarnings("null")
     public LettuceConnectionFactory redisConnectionFactory() {
@@ -50,12 +58,8 @@ public class RedisConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory());
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
-
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        CompactRedisSerializer serializer = new CompactRedisSerializer(jsonSerializer(), compactWrites,
+                List.of(new ChatMessageCodec(), new RegisterDataCodec()));
 
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(serializer);
@@ -64,4 +68,16 @@ public class RedisConfig {
 
         return template;
     }
+
+    /**
+     * Default-typed JSON for the types without a compact codec, and for reading values written before it.
+     */
+    public static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
+
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
 }
\ No newline at end of file
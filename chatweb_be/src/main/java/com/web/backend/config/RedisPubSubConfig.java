@@ -1,6 +1,8 @@
 package com.web.backend.config;
 
 import com.web.backend.redis.RedisSubscriber;
+import com.web.backend.service.util.SendAuthorizationCache;
+import com.web.backend.service.util.WebSocketRoutingService;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +10,7 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import org.springframework.context.annotation.Profile;
 
@@ -17,15 +20,37 @@ public class RedisPubSubConfig {
 
     @Bean
     public RedisMessageListenerContainer redisContainer(RedisConnectionFactory connectionFactory,
-            MessageListenerAdapter listenerAdapter) {
+            MessageListenerAdapter listenerAdapter,
+            MessageListenerAdapter sendAuthorizationListenerAdapter,
+            MessageListenerAdapter routingListenerAdapter) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
         container.addMessageListener(listenerAdapter, new ChannelTopic("channel:server:" + ServerIdentity.SERVER_ID));
+        container.addMessageListener(sendAuthorizationListenerAdapter,
+                new ChannelTopic(SendAuthorizationCache.CHANNEL_SEND_AUTH_STRING));
+        container.addMessageListener(routingListenerAdapter,
+                new ChannelTopic(WebSocketRoutingService.CHANNEL_ROUTING_STRING));
         return container;
     }
 
     @Bean
     public MessageListenerAdapter listenerAdapter(RedisSubscriber subscriber) {
-        return new MessageListenerAdapter(subscriber, "receiveMessage");
+        MessageListenerAdapter adapter = new MessageListenerAdapter(subscriber, "receiveMessage");
+        adapter.setSerializer(RedisSerializer.byteArray());
+        return adapter;
+    }
+
+    @Bean
+    public MessageListenerAdapter sendAuthorizationListenerAdapter(SendAuthorizationCache sendAuthorizationCache) {
+        MessageListenerAdapter adapter = new MessageListenerAdapter(sendAuthorizationCache, "onInvalidation");
+        adapter.setSerializer(RedisSerializer.string());
+        return adapter;
+    }
+
+    @Bean
+    public MessageListenerAdapter routingListenerAdapter(WebSocketRoutingService webSocketRoutingService) {
+        MessageListenerAdapter adapter = new MessageListenerAdapter(webSocketRoutingService, "onRouteChange");
+        adapter.setSerializer(RedisSerializer.string());
+        return adapter;
     }
 }
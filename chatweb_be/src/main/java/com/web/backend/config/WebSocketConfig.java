@@ -7,6 +7,7 @@ import com.web.backend.jwt.JwtHandshakeInterceptor;
 import com.web.backend.common.TokenType;
 import com.web.backend.model.UserEntity;
 import com.web.backend.service.JwtService;
+import com.web.backend.service.util.HeartbeatAccumulator;
 import com.web.backend.service.util.UserServiceDetail;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -50,6 +51,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final ObjectMapper objectMapper;
 
+    private final HeartbeatAccumulator heartbeatAccumulator;
+
     private static final String TOPIC_STRING = "/topic";
     private static final String QUEUE_STRING = "/queue";
     private static final String USER_STRING = "/user";
@@ -174,8 +177,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         && accessor.getUser() != null
                         && accessor.getUser().getName() != null
                         && !StompCommand.DISCONNECT.equals(accessor.getCommand())) {
-                    redisTemplate.opsForZSet().add("online_users", accessor.getUser().getName(),
-                            System.currentTimeMillis());
+                    heartbeatAccumulator.record(accessor.getUser().getName());
                 }
 
                 if (accessor != null && accessor.isModified()) {
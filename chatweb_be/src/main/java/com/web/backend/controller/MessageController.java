@@ -6,8 +6,10 @@ import com.web.backend.controller.request.EditMessageRequest;
 import com.web.backend.controller.request.ReactionRequest;
 import com.web.backend.controller.request.RevokeMessageRequest;
 import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.controller.response.ConversationResponse;
 import com.web.backend.controller.response.form.ApiResponse;
 import com.web.backend.controller.response.CursorResponse;
+import com.web.backend.controller.response.SyncResponse;
 import com.web.backend.controller.response.UnreadCountsResponse;
 import com.web.backend.model.UserEntity;
 import com.web.backend.service.MessageService;
@@ -31,6 +33,8 @@ public class MessageController {
         private final MessageService messageService;
 
         private static final String SUCCESS_MSG_GET_PRIVATE_STRING = "success.msg.get_private";
+        private static final String SUCCESS_MSG_GET_CHANGES_STRING = "success.msg.get_changes";
+        private static final String SUCCESS_MSG_GET_CONVERSATIONS_STRING = "success.msg.get_conversations";
         private static final String SUCCESS_MSG_GET_UNREAD_STRING = "success.msg.get_unread";
         private static final String SUCCESS_MSG_MARK_READ_STRING = "success.msg.mark_read";
         private static final String SUCCESS_MSG_GET_MESSAGE_STRING = "success.msg.get_message";
@@ -38,6 +42,9 @@ public class MessageController {
         private static final String SUCCESS_MSG_EDIT_STRING = "success.msg.edit";
         private static final String SUCCESS_MSG_REVOKE_STRING = "success.msg.revoke";
 
+        private static final int MAX_CHANGES_PAGE_SIZE = 500;
+        private static final int MAX_CONVERSATIONS_PAGE_SIZE = 500;
+
         @Operation(summary = "Get private message", description = "API endpoint for get private message")
         @GetMapping("/private")
         public ResponseEntity<ApiResponse<CursorResponse<ChatMessageResponse>>> getPrivateMessage(
@@ -55,6 +62,44 @@ public class MessageController {
                                 Translator.tolocale(SUCCESS_MSG_GET_PRIVATE_STRING), response));
         }
 
+        @Operation(summary = "Get private message changes", description = "API endpoint for fetching the messages of the current user's conversation with a peer created, edited, revoked or reacted to after a change sequence")
+        @GetMapping("/private/changes")
+        public ResponseEntity<ApiResponse<SyncResponse<ChatMessageResponse>>> getPrivateMessageChanges(
+                        Authentication auth,
+                        @RequestParam String peer,
+                        @RequestParam(required = false) Long since,
+                        @RequestParam(defaultValue = "100") int size) {
+                UserEntity user = (UserEntity) auth.getPrincipal();
+
+                log.info("Fetching private message changes between {} and {} since {}", user.getUsername(), peer,
+                                since);
+
+                // A page of at least one change, so a partial page always has a last sequence to resume from
+                int pageSize = Math.max(1, Math.min(size, MAX_CHANGES_PAGE_SIZE));
+                SyncResponse<ChatMessageResponse> response = messageService.findPrivateMessageChanges(
+                                user.getUsername(), peer, since, pageSize);
+
+                return ResponseEntity.ok(ApiResponse.success(HttpStatus.OK.value(),
+                                Translator.tolocale(SUCCESS_MSG_GET_CHANGES_STRING), response));
+        }
+
+        @Operation(summary = "Get conversations", description = "API endpoint for the current user's conversations, most recently active first")
+        @GetMapping("/conversations")
+        public ResponseEntity<ApiResponse<CursorResponse<ConversationResponse>>> getConversations(
+                        Authentication auth,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(defaultValue = "20") int size) {
+                UserEntity user = (UserEntity) auth.getPrincipal();
+
+                log.info("Fetching conversations for user: {}", user.getUsername());
+
+                // A page of at least one entry, so hasMore always comes with a cursor
+                int pageSize = Math.max(1, Math.min(size, MAX_CONVERSATIONS_PAGE_SIZE));
+                return ResponseEntity.ok(ApiResponse.success(HttpStatus.OK.value(),
+                                Translator.tolocale(SUCCESS_MSG_GET_CONVERSATIONS_STRING),
+                                messageService.findConversations(user.getUsername(), cursor, pageSize)));
+        }
+
         @Operation(summary = "Get unread counts", description = "API endpoint for get unread counts")
         @GetMapping("/unread-counts")
         public ResponseEntity<ApiResponse<UnreadCountsResponse>> getUnreadCounts(Authentication auth) {
@@ -42,5 +42,7 @@ public class ChatMessageResponse {
     private String wrappedKeyRecipient;
     private String wrappedKeySender;
 
+    private Long changeSeq;
+
     private String localId;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.web.backend.controller.response;
+
+import com.web.backend.common.ContentType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ConversationResponse {
+    private String conversationId;
+    private String peer;
+    private String lastMessageId;
+    private String lastSender;
+    private String lastContent;
+    private ContentType lastContentType;
+    private boolean lastDeleted;
+    private LocalDateTime lastTimestamp;
+    private long unreadCount;
+}
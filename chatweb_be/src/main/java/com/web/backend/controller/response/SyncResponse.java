@@ -0,0 +1,16 @@
+package com.web.backend.controller.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncResponse<T> {
+    private List<T> changes;   // Oldest change first
+    private long nextSeq;      // Pass back as "since" on the next call
+    private boolean hasMore;   // More changes are ready right away
+}
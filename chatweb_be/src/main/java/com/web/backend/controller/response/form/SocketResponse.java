@@ -32,6 +32,16 @@ public class SocketResponse<T> {
                 .build();
     }
 
+    @NonNull
+    @SuppressWarnings("null")
+    public static <T> SocketResponse<T> ack(T data) {
+        return SocketResponse.<T>builder()
+                .type(SocketEventType.ACK)
+                .message(null)
+                .data(data)
+                .build();
+    }
+
     @NonNull
     @SuppressWarnings("null")
     public static <T> SocketResponse<T> error(String message, T data) {
@@ -1,5 +1,8 @@
 package com.web.backend.kafka.consumer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
@@ -9,6 +12,7 @@ import com.web.backend.controller.response.form.SocketResponse;
 import com.web.backend.mapper.MessageMapper;
 import com.web.backend.model.ChatMessage;
 import com.web.backend.model.SystemMessage;
+import com.web.backend.redis.RedisWsMessage;
 import com.web.backend.service.util.WebSocketRoutingService;
 import com.web.backend.common.MessageType;
 
@@ -30,29 +34,40 @@ public class ChatConsumer {
 
     private static final String TOPIC_PUBLIC_STRING = "/topic/public";
 
-    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}")
-    public void listenChatMessages(ChatMessage message) {
-        if (message == null) {
+    private static final String CHAT_BATCH_LISTENER_FACTORY_STRING = "chatBatchListenerFactory";
+
+    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}", containerFactory = CHAT_BATCH_LISTENER_FACTORY_STRING)
+    public void listenChatMessages(List<ChatMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
             return;
         }
-        String recipient = message.getRecipient();
-        String sender = message.getSender();
-        log.info("Kafka received message: {} -> {}", sender, recipient);
-        try {
-            ChatMessageResponse messageResponse = messageMapper.toResponse(message);
-            messageResponse.setLocalId(message.getLocalId());
-            SocketResponse<ChatMessageResponse> response = SocketResponse.message(messageResponse);
-
-            if (message.getMessageType() == MessageType.CHAT) {
-                webSocketRoutingService.routeMessage(recipient, QUEUE_MESSAGES_STRING, response);
-            } else {
-                webSocketRoutingService.routeMessage(recipient, QUEUE_MESSAGES_STRING, response);
-                webSocketRoutingService.routeMessage(sender, QUEUE_MESSAGES_STRING, response);
+        log.info("Kafka received batch of {} chat messages", messages.size());
+
+        List<RedisWsMessage> deliveries = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (message == null) {
+                continue;
             }
+            try {
+                ChatMessageResponse messageResponse = messageMapper.toResponse(message);
+                messageResponse.setLocalId(message.getLocalId());
+                SocketResponse<ChatMessageResponse> response = SocketResponse.message(messageResponse);
 
-            log.info("Finished processing Kafka message for recipient: {}", message.getRecipient());
+                deliveries.add(new RedisWsMessage(message.getRecipient(), QUEUE_MESSAGES_STRING, response));
+                if (message.getMessageType() != MessageType.CHAT) {
+                    deliveries.add(new RedisWsMessage(message.getSender(), QUEUE_MESSAGES_STRING, response));
+                }
+            } catch (Exception e) {
+                log.error("Failed to map Kafka message {} -> {}: {}", message.getSender(), message.getRecipient(),
+                        e.getMessage());
+            }
+        }
+
+        try {
+            webSocketRoutingService.routeMessages(deliveries);
+            log.info("Finished processing Kafka batch of {} deliveries", deliveries.size());
         } catch (Exception e) {
-            log.error("Failed to send WebSocket message: {}", e.getMessage());
+            log.error("Failed to send WebSocket messages: {}", e.getMessage());
         }
     }
 
@@ -0,0 +1,81 @@
+package com.web.backend.kafka.consumer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
+import com.web.backend.repository.ConversationRepository;
+import com.web.backend.repository.ConversationRepositoryCustom.InboxUpdate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the {@code conversations} inbox read model: last message preview
+ * and last timestamp. Unread counts are served by {@code UnreadCounterService}.
+ * Failures are rethrown and the
+ * {@code inboxBatchListenerFactory} retries the batch with a backoff until Mongo
+ * accepts it; already applied records are skipped by offset.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j(topic = "CONVERSATION-INBOX-CONSUMER")
+public class ConversationInboxConsumer {
+
+    private final ConversationRepository conversationRepository;
+
+    private static final String INBOX_BATCH_LISTENER_FACTORY_STRING = "inboxBatchListenerFactory";
+
+    private static final class Pending {
+        private List<String> participants;
+        private int partition;
+        private long offset;
+        private ChatMessage newest;
+        private final List<ChatMessage> mutations = new ArrayList<>();
+    }
+
+    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}-inbox", containerFactory = INBOX_BATCH_LISTENER_FACTORY_STRING)
+    public void updateInbox(List<ChatMessage> messages,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+            @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        Map<String, Pending> byConversation = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage msg = messages.get(i);
+            if (msg == null || msg.getMessageType() != MessageType.CHAT || msg.getConversationId() == null
+                    || msg.getSender() == null || msg.getRecipient() == null) {
+                continue;
+            }
+            Pending pending = byConversation.computeIfAbsent(msg.getConversationId(), k -> new Pending());
+            pending.participants = Conversation.participantsOf(msg.getSender(), msg.getRecipient());
+            pending.partition = partitions.get(i);
+            pending.offset = offsets.get(i);
+            fold(pending, msg);
+        }
+        if (byConversation.isEmpty()) {
+            return;
+        }
+
+        List<InboxUpdate> updates = new ArrayList<>(byConversation.size());
+        byConversation.forEach((conversationId, pending) -> updates.add(new InboxUpdate(conversationId,
+                pending.participants, pending.partition, pending.offset, pending.newest, pending.mutations)));
+        conversationRepository.applyInboxUpdates(updates);
+        log.debug("Applied {} records to {} inbox entries", messages.size(), updates.size());
+    }
+
+    private static void fold(Pending pending, ChatMessage msg) {
+        if (msg.isEdited() || msg.isDeleted()) {
+            pending.mutations.add(msg);
+        } else if (msg.getTimestamp() != null) {
+            pending.newest = msg;
+        }
+    }
+}
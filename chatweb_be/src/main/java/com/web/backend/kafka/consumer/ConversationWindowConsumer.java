@@ -0,0 +1,34 @@
+package com.web.backend.kafka.consumer;
+
+import java.util.List;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.model.ChatMessage;
+import com.web.backend.service.util.ConversationWindowCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feeds every chat-messages record to this node's window cache; each node uses its own group.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j(topic = "CONVERSATION-WINDOW-CONSUMER")
+public class ConversationWindowConsumer {
+
+    private final ConversationWindowCache conversationWindowCache;
+
+    private static final String CHAT_BATCH_LISTENER_FACTORY_STRING = "chatBatchListenerFactory";
+
+    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}-window-${random.uuid}", containerFactory = CHAT_BATCH_LISTENER_FACTORY_STRING)
+    public void updateWindows(List<ChatMessage> messages) {
+        try {
+            conversationWindowCache.apply(messages);
+        } catch (Exception e) {
+            log.error("Error applying chat records to the window cache", e);
+        }
+    }
+}
@@ -1,13 +1,31 @@
 package com.web.backend.kafka.consumer;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.kafka.clients.consumer.Consumer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import com.web.backend.common.MessageStatus;
 import com.web.backend.common.MessageType;
 import com.web.backend.model.ChatMessage;
+import com.web.backend.model.ReadWatermark;
+import com.web.backend.redis.RedisWsMessage;
 import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.ReadWatermarkRepository;
 import com.web.backend.service.util.WebSocketRoutingService;
 import com.web.backend.controller.response.ChatMessageResponse;
 import com.web.backend.controller.response.form.SocketResponse;
@@ -22,63 +40,187 @@ import lombok.extern.slf4j.Slf4j;
 public class DatabaseWriteBehindConsumer {
 
     private final MessageRepository messageRepository;
+    private final ReadWatermarkRepository readWatermarkRepository;
     private final MessageMapper messageMapper;
     private final WebSocketRoutingService webSocketRoutingService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final WriteBehindBackpressure writeBehindBackpressure;
+
+    @Value("${app.kafka.chat.write-behind.retry-topic:${spring.kafka.topic.chat.messages}.DLT}")
+    private String retryTopic;
 
     private static final String QUEUE_MESSAGES_STRING = "/queue/messages";
 
-    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.save}", containerFactory = "batchFactory")
-    public void handleDbPersistence(List<ChatMessage> messages) {
-        List<ChatMessage> messagesToSave = messages.stream().filter(msg -> msg.getMessageType() == MessageType.CHAT)
+    /**
+     * Persists new messages and gives every change of the batch (new, edited or
+     * revoked messages and reactions) the next numbers of its conversation's
+     * change sequence. A conversation is only ever sequenced by the consumer of
+     * its partition, and its committed watermark moves only once the whole
+     * batch is written, so sync readers never see a gap behind it. Dead-lettered
+     * records come back through the replay topic, which no other group reads.
+     */
+    @KafkaListener(id = WriteBehindBackpressure.LISTENER_ID_STRING, idIsGroup = false, topics = { "${spring.kafka.topic.chat.messages}",
+            "${app.kafka.chat.write-behind.replay-topic:${spring.kafka.topic.chat.messages}.replay}" }, groupId = "${spring.kafka.topic.chat.save}", containerFactory = "batchFactory")
+    public void handleDbPersistence(List<ChatMessage> messages,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+            @Header(KafkaHeaders.OFFSET) List<Long> offsets,
+            Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        writeBehindBackpressure.updateLag(consumer);
+        List<ChatMessage> changes = messages.stream()
+                .filter(msg -> msg.getMessageType() == MessageType.CHAT || msg.getMessageType() == MessageType.REACTION)
                 .toList();
-        if (messagesToSave.isEmpty()) {
+        if (changes.isEmpty()) {
+            acknowledgment.acknowledge();
             return;
         }
-        log.info("Kafka Consumer: Writing batch of {} messages to Database...", messages.size());
-        int maxAttempts = 3;
-        long backoffDelay = 1000;
-
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                messageRepository.saveAll(messagesToSave);
-                log.info("Successfully saved {} messages.", messages.size());
-
-                sendAcknowledgements(messagesToSave);
-
-                return;
-            } catch (Exception e) {
-                log.warn("Error writing to DB (Attempt {}/{}): {}", attempt, maxAttempts, e.getMessage());
-                if (attempt == maxAttempts) {
-                    log.error("Database save FAILED after {} attempts. Throwing exception to prevent data loss.",
-                            maxAttempts);
-                    throw new RuntimeException("Failed to save messages to DB after " + maxAttempts + " attempts", e);
-                } else {
-                    try {
-                        Thread.sleep(backoffDelay);
-                        backoffDelay *= 2;
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Thread interrupted during DB retry backoff", ie);
-                    }
+        List<ChatMessage> messagesToSave = changes.stream().filter(msg -> msg.getMessageType() == MessageType.CHAT)
+                .toList();
+        log.info("Kafka Consumer: Writing batch of {} messages to Database...", messagesToSave.size());
+        // A nacked batch is redelivered from the same first record, so its position names the batch
+        String batchKey = topics.get(0) + "-" + partitions.get(0) + "@" + offsets.get(0);
+        long start = System.currentTimeMillis();
+
+        Set<String> persistedIds;
+        try {
+            Map<String, Long> committed = assignChangeSeqs(changes);
+            applyReadWatermarks(messagesToSave);
+            persistedIds = messageRepository.bulkInsertIfAbsent(messagesToSave);
+            messageRepository.stampChangeSeqs(mutationChangeSeqs(changes));
+            messageRepository.commitChangeSeqs(committed);
+        } catch (Exception e) {
+            Duration backoff = writeBehindBackpressure.recordFailure(batchKey, System.currentTimeMillis() - start);
+            if (writeBehindBackpressure.isPoison(batchKey)) {
+                log.error("Batch starting at {} keeps failing, moving it to {}: {}", batchKey, retryTopic,
+                        e.getMessage());
+                deadLetter(changes);
+                acknowledgment.acknowledge();
+            } else {
+                // Re-seek the whole batch (from index 0) and pause the consumer instead of sleeping on this thread
+                log.warn("Error writing to DB, redelivering batch in {}: {}", backoff, e.getMessage());
+                acknowledgment.nack(0, backoff);
+            }
+            return;
+        }
+        writeBehindBackpressure.recordSuccess(batchKey, System.currentTimeMillis() - start);
+
+        List<ChatMessage> persisted = messagesToSave.stream()
+                .filter(msg -> persistedIds.contains(msg.getId()))
+                .toList();
+        log.info("Successfully saved {} of {} messages.", persisted.size(), messagesToSave.size());
+
+        if (persisted.size() < messagesToSave.size()) {
+            deadLetter(messagesToSave.stream()
+                    .filter(msg -> !persistedIds.contains(msg.getId()))
+                    .toList());
+        }
+        acknowledgment.acknowledge();
+        sendAcknowledgements(persisted);
+    }
+
+    /**
+     * Numbers the changes of each conversation in batch order. Replayed records
+     * are renumbered, since the numbers they carried may already be committed.
+     *
+     * @return the highest number used per conversation
+     */
+    private Map<String, Long> assignChangeSeqs(List<ChatMessage> changes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ChatMessage msg : changes) {
+            if (msg.getConversationId() != null) {
+                counts.merge(msg.getConversationId(), 1, Integer::sum);
+            }
+        }
+        Map<String, Long> next = new HashMap<>(messageRepository.reserveChangeSeqs(counts));
+        Map<String, Long> highest = new HashMap<>();
+        for (ChatMessage msg : changes) {
+            if (msg.getConversationId() != null) {
+                long seq = next.merge(msg.getConversationId(), 1L, Long::sum) - 1;
+                msg.setChangeSeq(seq);
+                highest.put(msg.getConversationId(), seq);
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Messages the recipient read before they reached Mongo are stored as read.
+     */
+    private void applyReadWatermarks(List<ChatMessage> messages) {
+        Set<String> watermarkIds = new HashSet<>();
+        for (ChatMessage msg : messages) {
+            if (isUnreadNewMessage(msg)) {
+                watermarkIds.add(ReadWatermark.idOf(msg.getConversationId(), msg.getRecipient()));
+            }
+        }
+        if (watermarkIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, LocalDateTime> readUpTo = new HashMap<>();
+        for (ReadWatermark watermark : readWatermarkRepository.findAllById(watermarkIds)) {
+            readUpTo.put(watermark.getId(), watermark.getLastReadTimestamp());
+        }
+        for (ChatMessage msg : messages) {
+            if (isUnreadNewMessage(msg)) {
+                LocalDateTime upTo = readUpTo.get(ReadWatermark.idOf(msg.getConversationId(), msg.getRecipient()));
+                if (upTo != null && !msg.getTimestamp().isAfter(upTo)) {
+                    msg.setStatus(MessageStatus.READ);
                 }
             }
         }
     }
 
-    private void sendAcknowledgements(List<ChatMessage> messagesToSave) {
-        try (var executor = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor()) {
-            for (ChatMessage msg : messagesToSave) {
-                executor.submit(() -> {
-                    try {
-                        ChatMessageResponse messageResponse = messageMapper.toResponse(msg);
-                        messageResponse.setLocalId(msg.getLocalId());
-                        SocketResponse<ChatMessageResponse> response = SocketResponse.message(messageResponse);
-                        webSocketRoutingService.routeMessage(msg.getSender(), QUEUE_MESSAGES_STRING, response);
-                    } catch (Exception ex) {
-                        log.error("Error sending ACK to sender: {}", ex.getMessage());
-                    }
-                });
+    private static boolean isUnreadNewMessage(ChatMessage msg) {
+        return !msg.isEdited() && !msg.isDeleted() && msg.getStatus() != MessageStatus.READ
+                && msg.getConversationId() != null && msg.getRecipient() != null && msg.getTimestamp() != null;
+    }
+
+    /**
+     * Edits, revokes and reactions are already stored by the service; only their
+     * sequence number is still missing.
+     */
+    private Map<String, Long> mutationChangeSeqs(List<ChatMessage> changes) {
+        Map<String, Long> seqByMessageId = new HashMap<>();
+        for (ChatMessage msg : changes) {
+            boolean mutation = msg.getMessageType() == MessageType.REACTION || msg.isEdited() || msg.isDeleted();
+            if (mutation && msg.getId() != null && msg.getChangeSeq() != null) {
+                seqByMessageId.merge(msg.getId(), msg.getChangeSeq(), Math::max);
             }
         }
+        return seqByMessageId;
+    }
+
+    /**
+     * Records that cannot be written go to the retry topic on their own,
+     * so the rest of the flow is neither stalled nor duplicated.
+     */
+    private void deadLetter(List<ChatMessage> failed) {
+        log.error("{} records were rejected by the Database, sending them to {}", failed.size(), retryTopic);
+        for (ChatMessage msg : failed) {
+            kafkaTemplate.send(retryTopic, msg.getConversationId(), msg);
+        }
+    }
+
+    /**
+     * Sends each sender one ACK frame listing all of their messages persisted in this batch.
+     */
+    private void sendAcknowledgements(List<ChatMessage> persisted) {
+        try {
+            Map<String, List<ChatMessageResponse>> bySender = new LinkedHashMap<>();
+            for (ChatMessage msg : persisted) {
+                ChatMessageResponse messageResponse = messageMapper.toResponse(msg);
+                messageResponse.setLocalId(msg.getLocalId());
+                bySender.computeIfAbsent(msg.getSender(), k -> new ArrayList<>()).add(messageResponse);
+            }
+
+            List<RedisWsMessage> deliveries = new ArrayList<>(bySender.size());
+            bySender.forEach((sender, responses) -> deliveries
+                    .add(new RedisWsMessage(sender, QUEUE_MESSAGES_STRING, SocketResponse.ack(responses))));
+            webSocketRoutingService.routeMessages(deliveries);
+        } catch (Exception ex) {
+            log.error("Error sending ACKs to senders: {}", ex.getMessage());
+        }
     }
 }
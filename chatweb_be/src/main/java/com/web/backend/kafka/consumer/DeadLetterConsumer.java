@@ -1,5 +1,6 @@
 package com.web.backend.kafka.consumer;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -17,27 +18,30 @@ public class DeadLetterConsumer {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
-    @Value("${spring.kafka.topic.chat.messages}")
-    private String chatTopic;
+    @Value("${app.kafka.chat.write-behind.replay-topic:${spring.kafka.topic.chat.messages}.replay}")
+    private String replayTopic;
 
     /**
      * Listens to the DLQ (Dead Letter Queue) of the chat-messages flow.
-     * Automatically replays the message back to the main flow after 5 minutes.
+     * Automatically replays the message to the write-behind flow after 5 minutes.
+     * Replays go to a topic only the write-behind group reads: the delivery,
+     * cache and inbox consumers already handled the record the first time.
      */
     @KafkaListener(topics = "${spring.kafka.topic.chat.messages}.DLT", groupId = "dead-letter-recovery-group")
-    public void processChatDlt(Object messagePayload) {
+    public void processChatDlt(ConsumerRecord<String, Object> messageRecord) {
         log.warn("🚨 ALARM: Data detected in DLT (Dead Letter Topic)! Database might be down.");
 
         try {
             // Sleep for 5 minutes before retrying to prevent an infinite loop.
-            // If the Database is still down, the main flow will throw it back into DLT,
+            // If the Database is still down, the write-behind flow will throw it back into DLT,
             // and this consumer will sleep for another 5 minutes before trying again.
             // => The system automatically "buys time" safely until the DB recovers!
             log.info("⏳ Waiting 5 minutes before resurrecting data...");
             TimeUnit.MINUTES.sleep(5);
 
-            log.info("♻️ Replaying data back to main topic: {}", chatTopic);
-            kafkaTemplate.send(chatTopic, messagePayload);
+            log.info("♻️ Replaying data to write-behind topic: {}", replayTopic);
+            // Keep the original key so the replayed record returns to its conversation's partition.
+            kafkaTemplate.send(replayTopic, messageRecord.key(), messageRecord.value());
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
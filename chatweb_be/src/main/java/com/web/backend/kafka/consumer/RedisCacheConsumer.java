@@ -1,15 +1,24 @@
 package com.web.backend.kafka.consumer;
 
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import com.web.backend.common.MessageType;
 import com.web.backend.model.ChatMessage;
+import com.web.backend.redis.RedisScripts;
+import com.web.backend.service.util.RecentMessageCache;
+import com.web.backend.service.util.UnreadCounterService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,40 +30,119 @@ public class RedisCacheConsumer {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
-    private static final String CHAT_RECENT_HASH_STRING = "chat:recent:hash:";
-    private static final String CHAT_RECENT_ZSET_STRING = "chat:recent:zset:";
-    private static final String UNREAD_COUNTS_STRING = "unread:counts:";
-    private static final long REDIS_TTL_MINUTES = 5;
+    private final RecentMessageCache recentMessageCache;
 
-    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}-redis-cache")
-    public void updateRecentChats(ChatMessage chatMsg) {
-        if (chatMsg == null || chatMsg.getMessageType() != MessageType.CHAT) {
-            return;
-        }
+    private final UnreadCounterService unreadCounterService;
 
-        String convId = chatMsg.getConversationId();
-        if (convId == null) {
-            return;
-        }
+    private static final String CHAT_BATCH_LISTENER_FACTORY_STRING = "chatBatchListenerFactory";
 
-        log.info("Kafka Consumer: Caching message from {} to Redis", chatMsg.getSender());
-        try {
-            String hashKey = CHAT_RECENT_HASH_STRING + convId;
-            String zsetKey = CHAT_RECENT_ZSET_STRING + convId;
+    /**
+     * KEYS: recent hash, recent zset.
+     * ARGV: message id, zset member, message, score, window size, ttl seconds, complete field, revision field suffix.
+     * Trimmed zset members are removed from the hash as well, and the window stops counting as complete.
+     */
+    private static final DefaultRedisScript<Long> CACHE_MESSAGE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+            redis.call('ZADD', KEYS[2], ARGV[4], ARGV[2])
+            local stop = -(tonumber(ARGV[5]) + 1)
+            local evicted = redis.call('ZRANGE', KEYS[2], 0, stop)
+            if #evicted > 0 then
+                redis.call('ZREMRANGEBYRANK', KEYS[2], 0, stop)
+                for _, member in ipairs(evicted) do
+                    local ok, id = pcall(cjson.decode, member)
+                    id = ok and id or member
+                    redis.call('HDEL', KEYS[1], id, id .. ARGV[8])
+                end
+                redis.call('HDEL', KEYS[1], ARGV[7])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[6])
+            redis.call('EXPIRE', KEYS[2], ARGV[6])
+            return #evicted
+            """, Long.class);
 
-            redisTemplate.opsForHash().put(hashKey, chatMsg.getId(), chatMsg);
-            long score = chatMsg.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-            redisTemplate.opsForZSet().add(zsetKey, chatMsg.getId(), score);
+    @KafkaListener(topics = "${spring.kafka.topic.chat.messages}", groupId = "${spring.kafka.topic.chat.messages-group-id}-redis-cache", containerFactory = CHAT_BATCH_LISTENER_FACTORY_STRING)
+    public void updateRecentChats(List<ChatMessage> messages) {
+        List<ChatMessage> chats = messages.stream()
+                .filter(Objects::nonNull)
+                .filter(msg -> msg.getMessageType() == MessageType.CHAT && msg.getConversationId() != null)
+                .toList();
+        // Edits and revokes only replace a cached copy; appending them could bring back a trimmed message
+        List<ChatMessage> mutations = chats.stream().filter(msg -> msg.isEdited() || msg.isDeleted()).toList();
+        List<ChatMessage> toCache = chats.stream().filter(msg -> !msg.isEdited() && !msg.isDeleted()).toList();
+        if (!toCache.isEmpty()) {
+            cacheNewMessages(toCache);
+        }
+        // After the appends, so a message edited in the same batch is replaced too
+        patchMutations(mutations);
+    }
 
-            redisTemplate.opsForZSet().removeRange(zsetKey, 0, -51);
+    private void cacheNewMessages(List<ChatMessage> toCache) {
+        log.info("Kafka Consumer: Caching batch of {} messages to Redis", toCache.size());
+        try {
+            @SuppressWarnings("unchecked")
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            byte[] windowSize = bytes(String.valueOf(recentMessageCache.getWindowSize()));
+            byte[] ttlSeconds = bytes(String.valueOf(recentMessageCache.getTtl().toSeconds()));
+            byte[] completeField = bytes(RecentMessageCache.WINDOW_COMPLETE_FIELD_STRING);
+            byte[] revisionSuffix = bytes(RecentMessageCache.REVISION_FIELD_SUFFIX_STRING);
 
-            redisTemplate.expire(hashKey, Objects.requireNonNull(Duration.ofMinutes(REDIS_TTL_MINUTES)));
-            redisTemplate.expire(zsetKey, Objects.requireNonNull(Duration.ofMinutes(REDIS_TTL_MINUTES)));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisScripts.load(connection, CACHE_MESSAGE_SCRIPT);
+                for (ChatMessage chatMsg : toCache) {
+                    String convId = chatMsg.getConversationId();
+                    long score = chatMsg.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
 
-            String key = UNREAD_COUNTS_STRING + chatMsg.getRecipient();
-            redisTemplate.opsForHash().increment(key, Objects.requireNonNull(chatMsg.getSender()), 1);
+                    RedisScripts.evalSha(connection, CACHE_MESSAGE_SCRIPT, 2,
+                            bytes(RecentMessageCache.CHAT_RECENT_HASH_STRING + convId),
+                            bytes(RecentMessageCache.CHAT_RECENT_ZSET_STRING + convId),
+                            bytes(chatMsg.getId()),
+                            valueSerializer.serialize(chatMsg.getId()),
+                            valueSerializer.serialize(chatMsg),
+                            bytes(String.valueOf(score)),
+                            windowSize,
+                            ttlSeconds,
+                            completeField,
+                            revisionSuffix);
+                }
+                return null;
+            });
         } catch (Exception e) {
             log.error("Error caching message to Redis in background", e);
         }
+
+        try {
+            unreadCounterService.increment(newMessagesByRecipient(toCache));
+        } catch (Exception e) {
+            log.error("Error counting unread messages in background", e);
+        }
+    }
+
+    private void patchMutations(List<ChatMessage> mutations) {
+        for (ChatMessage msg : mutations) {
+            try {
+                recentMessageCache.patch(msg);
+            } catch (Exception e) {
+                log.error("Error patching message {} in Redis in background", msg.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * New messages per recipient and sender; self-messages are never unread.
+     */
+    private static Map<String, Map<String, Long>> newMessagesByRecipient(List<ChatMessage> messages) {
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        for (ChatMessage msg : messages) {
+            if (msg.getSender() == null || msg.getRecipient() == null
+                    || msg.getSender().equals(msg.getRecipient())) {
+                continue;
+            }
+            deltas.computeIfAbsent(msg.getRecipient(), k -> new HashMap<>()).merge(msg.getSender(), 1L, Long::sum);
+        }
+        return deltas;
+    }
+
+    private static byte[] bytes(String value) {
+        return Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
     }
 }
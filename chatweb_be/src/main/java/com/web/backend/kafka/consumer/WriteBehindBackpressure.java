@@ -0,0 +1,168 @@
+package com.web.backend.kafka.consumer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks Mongo latency and error rate for the write-behind listener and turns a
+ * slow or failing database into paused consumption (bounded Kafka lag) instead
+ * of a blocked consumer thread. Batches that keep failing are reported as poison.
+ */
+@Component
+@Slf4j(topic = "WRITE-BEHIND-BACKPRESSURE")
+public class WriteBehindBackpressure {
+
+    public static final String LISTENER_ID_STRING = "chatWriteBehind";
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long MAX_TRACKED_BATCHES = 10_000;
+
+    private final KafkaListenerEndpointRegistry registry;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final long latencyThresholdMs;
+    private final double errorRateThreshold;
+    private final Duration basePause;
+    private final Duration maxPause;
+    private final int maxBatchAttempts;
+
+    private volatile double latencyEwmaMs;
+    private volatile double errorRateEwma;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private final AtomicLong lag = new AtomicLong();
+    private final Cache<String, Integer> batchAttempts;
+
+    public WriteBehindBackpressure(KafkaListenerEndpointRegistry registry,
+            MeterRegistry meterRegistry,
+            @Value("${app.kafka.chat.write-behind.latency-threshold-ms:500}") long latencyThresholdMs,
+            @Value("${app.kafka.chat.write-behind.error-rate-threshold:0.5}") double errorRateThreshold,
+            @Value("${app.kafka.chat.write-behind.base-pause:1s}") Duration basePause,
+            @Value("${app.kafka.chat.write-behind.max-pause:30s}") Duration maxPause,
+            @Value("${app.kafka.chat.write-behind.max-batch-attempts:5}") int maxBatchAttempts) {
+        this.registry = registry;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.errorRateThreshold = errorRateThreshold;
+        this.basePause = basePause;
+        this.maxPause = maxPause;
+        this.maxBatchAttempts = maxBatchAttempts;
+        // A batch still being retried fails again within one max pause; anything older was
+        // committed elsewhere or moved to another consumer after a rebalance
+        this.batchAttempts = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_BATCHES)
+                .expireAfterWrite(maxPause.multipliedBy(4))
+                .build();
+
+        Gauge.builder("chat.write_behind.lag", lag, AtomicLong::get)
+                .description("Records not yet consumed by the write-behind listener")
+                .register(meterRegistry);
+        Gauge.builder("chat.write_behind.latency_ms", this, b -> b.latencyEwmaMs)
+                .register(meterRegistry);
+        Gauge.builder("chat.write_behind.error_rate", this, b -> b.errorRateEwma)
+                .register(meterRegistry);
+        Gauge.builder("chat.write_behind.paused", paused, p -> p.get() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a successful write and pauses the listener for a cool-down while Mongo stays slow.
+     */
+    public void recordSuccess(String batchKey, long latencyMs) {
+        batchAttempts.invalidate(batchKey);
+        consecutiveFailures.set(0);
+        latencyEwmaMs = ewma(latencyEwmaMs, latencyMs);
+        errorRateEwma = ewma(errorRateEwma, 0);
+
+        if (latencyEwmaMs > latencyThresholdMs) {
+            Duration coolDown = cap(Duration.ofMillis((long) latencyEwmaMs));
+            log.warn("Mongo latency {} ms is above {} ms, pausing write-behind for {}", (long) latencyEwmaMs,
+                    latencyThresholdMs, coolDown);
+            pauseFor(coolDown);
+        }
+    }
+
+    /**
+     * Records a failed write and returns how long the batch should wait before it is redelivered.
+     */
+    public Duration recordFailure(String batchKey, long latencyMs) {
+        batchAttempts.asMap().merge(batchKey, 1, Integer::sum);
+        int failures = consecutiveFailures.incrementAndGet();
+        latencyEwmaMs = ewma(latencyEwmaMs, latencyMs);
+        errorRateEwma = ewma(errorRateEwma, 1);
+
+        Duration backoff = cap(basePause.multipliedBy(1L << Math.min(failures - 1, 16)));
+        if (errorRateEwma > errorRateThreshold) {
+            log.warn("Mongo error rate {} is above {}, pausing write-behind for {}", errorRateEwma,
+                    errorRateThreshold, backoff);
+            pauseFor(backoff);
+        }
+        return backoff;
+    }
+
+    /**
+     * A batch is poison once it has failed on its own too often; it should leave the main flow.
+     */
+    public boolean isPoison(String batchKey) {
+        Integer attempts = batchAttempts.getIfPresent(batchKey);
+        if (attempts != null && attempts >= maxBatchAttempts) {
+            batchAttempts.invalidate(batchKey);
+            return true;
+        }
+        return false;
+    }
+
+    public void updateLag(Consumer<?, ?> consumer) {
+        long total = 0;
+        for (TopicPartition partition : consumer.assignment()) {
+            total += consumer.currentLag(partition).orElse(0);
+        }
+        lag.set(total);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void pauseFor(Duration duration) {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID_STRING);
+        if (container == null || !paused.compareAndSet(false, true)) {
+            return;
+        }
+        container.pause();
+        scheduler.schedule(() -> {
+            container.resume();
+            paused.set(false);
+            log.info("Write-behind listener resumed");
+        }, duration.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration cap(Duration duration) {
+        return duration.compareTo(maxPause) > 0 ? maxPause : duration;
+    }
+
+    private static double ewma(double current, double sample) {
+        return current + EWMA_WEIGHT * (sample - current);
+    }
+}
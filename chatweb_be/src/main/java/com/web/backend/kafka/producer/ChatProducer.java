@@ -1,5 +1,7 @@
 package com.web.backend.kafka.producer;
 
+import com.web.backend.model.ChatMessage;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,6 +25,9 @@ public class ChatProducer {
     @Value("${spring.kafka.topic.chat.system-messages}")
     private String systemTopic;
 
+    @Value("${app.kafka.chat.partition-by-conversation:true}")
+    private boolean partitionByConversation;
+
     public CompletableFuture<SendResult<String, Object>> sendChatMessage(Object messageChat) {
         return sendSafely(chatTopic, messageChat, "Chat Message");
     }
@@ -49,7 +54,7 @@ public class ChatProducer {
 
     private CompletableFuture<SendResult<String, Object>> sendSafely(String topic, Object payload, String actionName) {
         CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(Objects.requireNonNull(topic),
-                payload);
+                resolveKey(payload), payload);
         future.whenComplete((result, ex) -> {
             if (ex != null) {
                 log.error("Critical Error: Cannot push {} to Kafka. Topic: {}", actionName, topic, ex);
@@ -59,4 +64,15 @@ public class ChatProducer {
         });
         return future;
     }
+
+    /**
+     * Chat records of one conversation share a key so they land on the same partition
+     * and are consumed in order by a single listener thread.
+     */
+    private String resolveKey(Object payload) {
+        if (partitionByConversation && payload instanceof ChatMessage chatMessage) {
+            return chatMessage.getConversationId();
+        }
+        return null;
+    }
 }
@@ -3,18 +3,17 @@ package com.web.backend.listener;
 import com.web.backend.config.ServerIdentity;
 
 import java.security.Principal;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import org.springframework.context.event.EventListener;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import com.web.backend.service.UserService;
+import com.web.backend.service.util.OfflineDebounceWheel;
+import com.web.backend.service.util.SessionRegistry;
+import com.web.backend.service.util.WebSocketRoutingService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,13 +25,11 @@ public class WebSocketListener {
 
     private final UserService userService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final SessionRegistry sessionRegistry;
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final WebSocketRoutingService webSocketRoutingService;
 
-    private static final String ONLINE_USERS_KEY = "online_users";
-
-    private static final String ONLINE_USERS_COUNT_KEY = "online_users_count";
+    private final OfflineDebounceWheel offlineDebounceWheel;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
@@ -43,16 +40,13 @@ public class WebSocketListener {
 
         if (username != null) {
 
-            Long count = redisTemplate.opsForHash().increment(ONLINE_USERS_COUNT_KEY, username, 1);
-
-            if (count != null && count <= 0) {
-                redisTemplate.opsForHash().put(ONLINE_USERS_COUNT_KEY, username, 1L);
-                count = 1L;
+            if (offlineDebounceWheel.cancel(username)) {
+                log.info("User reconnected during debounce period: {}", username);
             }
 
-            redisTemplate.opsForZSet().add(ONLINE_USERS_KEY, username, System.currentTimeMillis());
+            long count = sessionRegistry.register(username);
 
-            if (count != null && count == 1) {
+            if (count == 1) {
                 userService.setUserOnlineStatus(username, true);
 
                 log.info("User Online (First Session): {}", username);
@@ -60,7 +54,7 @@ public class WebSocketListener {
                 log.debug("User opened new tab/device: {}, total sessions: {}", username, count);
             }
 
-            redisTemplate.opsForValue().set("ws:routing:" + username, ServerIdentity.SERVER_ID);
+            webSocketRoutingService.registerRoute(username);
             log.info("Mapped User {} to Server {}", username, ServerIdentity.SERVER_ID);
         }
     }
@@ -76,40 +70,11 @@ public class WebSocketListener {
 
             log.info("WebSocket Disconnected: {}", username);
 
-            Long count = redisTemplate.opsForHash().increment(ONLINE_USERS_COUNT_KEY, username, -1);
-
-            if (count != null && count < 0) {
-                redisTemplate.opsForHash().put(ONLINE_USERS_COUNT_KEY, username, 0L);
-                count = 0L;
-            }
+            long count = sessionRegistry.unregister(username);
 
-            if (count != null && count <= 0) {
+            if (count <= 0) {
                 log.info("User count <= 0, scheduling offline debounce for: {}", username);
-                scheduler.schedule(() -> {
-                    try {
-                        Object currentCountObj = redisTemplate.opsForHash().get(ONLINE_USERS_COUNT_KEY, username);
-                        long currentCount = 0;
-                        if (currentCountObj != null) {
-                            if (currentCountObj instanceof Number number) {
-                                currentCount = (number).longValue();
-                            } else {
-                                currentCount = Long.parseLong(currentCountObj.toString());
-                            }
-                        }
-
-                        if (currentCount <= 0) {
-                            redisTemplate.opsForZSet().remove(ONLINE_USERS_KEY, username);
-                            redisTemplate.opsForHash().delete(ONLINE_USERS_COUNT_KEY, username);
-                            redisTemplate.delete("ws:routing:" + username);
-                            userService.setUserOnlineStatus(username, false);
-                            log.info("User Disconnected Completely (All sessions closed): {}", username);
-                        } else {
-                            log.info("User reconnected during debounce period: {}", username);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error during offline debounce", e);
-                    }
-                }, 5, TimeUnit.SECONDS);
+                offlineDebounceWheel.schedule(username);
             } else {
                 log.info("User closed one session, still online on other devices: {}, remaining: {}", username, count);
             }
@@ -6,6 +6,7 @@ import com.web.backend.common.MessageStatus;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -15,7 +16,11 @@ import org.springframework.data.annotation.Transient;
 
 @Document("messages")
 @Data
-@CompoundIndex(name = "unread_msg_idx", def = "{'recipient': 1, 'status': 1, 'messageType': 1}")
+@CompoundIndexes({
+        @CompoundIndex(name = "unread_msg_idx", def = "{'recipient': 1, 'status': 1, 'messageType': 1}"),
+        @CompoundIndex(name = "history_idx", def = "{'conversationId': 1, 'messageType': 1, 'timestamp': -1, '_id': -1}"),
+        @CompoundIndex(name = "sync_idx", def = "{'conversationId': 1, 'changeSeq': 1}")
+})
 public class ChatMessage {
 
     @Id
@@ -53,6 +58,12 @@ public class ChatMessage {
     private String wrappedKeyRecipient;
     private String wrappedKeySender;
 
+    // Per-conversation sequence of the last create or mutation, assigned by the write-behind consumer
+    private Long changeSeq;
+
+    // Bumped by every edit, revoke and reaction so cached copies can tell which state is newer
+    private Long revision;
+
     @Transient
     private String localId;
 }
\ No newline at end of file
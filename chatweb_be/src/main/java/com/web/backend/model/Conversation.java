@@ -0,0 +1,48 @@
+package com.web.backend.model;
+
+import com.web.backend.common.ContentType;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Inbox entry of one private conversation, maintained from the chat-messages
+ * topic by {@code ConversationInboxConsumer}. The id is the conversation id.
+ * Unread counts are not kept here: they are owned by {@code UnreadCounterService}.
+ */
+@Document("conversations")
+@Data
+@CompoundIndexes({
+        @CompoundIndex(name = "inbox_idx", def = "{'participants': 1, 'lastTimestamp': -1, '_id': -1}")
+})
+public class Conversation {
+
+    @Id
+    private String id;
+
+    private List<String> participants;
+
+    private String lastMessageId;
+    private String lastSender;
+    private String lastContent;
+    private ContentType lastContentType;
+    private boolean lastDeleted;
+    private LocalDateTime lastTimestamp;
+
+    // Position of the last chat-messages record applied, so redelivered batches are skipped
+    private Integer sourcePartition;
+    private Long sourceOffset;
+
+    /**
+     * Participants as stored on an entry: sorted, and a single one for a self-chat.
+     */
+    public static List<String> participantsOf(String sender, String recipient) {
+        return Stream.of(sender, recipient).sorted().distinct().toList();
+    }
+}
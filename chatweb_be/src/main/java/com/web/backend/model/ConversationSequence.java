@@ -0,0 +1,22 @@
+package com.web.backend.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Change sequence counter of one conversation. {@code seq} is the last number
+ * handed out; {@code committed} is the last one whose writes are complete and
+ * may be served to sync readers.
+ */
+@Document("conversation_sequences")
+@Data
+public class ConversationSequence {
+
+    @Id
+    private String id;
+
+    private long seq;
+
+    private long committed;
+}
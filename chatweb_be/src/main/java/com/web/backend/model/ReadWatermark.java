@@ -0,0 +1,30 @@
+package com.web.backend.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far one participant has read a conversation: every message addressed to
+ * them up to {@code lastReadTimestamp} is read. Only ever moves forward.
+ */
+@Document("read_watermarks")
+@Data
+public class ReadWatermark {
+
+    // conversationId + "|" + reader, see idOf
+    @Id
+    private String id;
+
+    private String conversationId;
+    private String reader;
+
+    private String lastReadMessageId;
+    private LocalDateTime lastReadTimestamp;
+
+    public static String idOf(String conversationId, String reader) {
+        return conversationId + "|" + reader;
+    }
+}
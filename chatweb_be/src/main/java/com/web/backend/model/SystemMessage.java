@@ -2,6 +2,7 @@ package com.web.backend.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -9,6 +10,7 @@ import java.time.Instant;
 
 @Document("system_message")
 @Data
+@CompoundIndex(name = "history_idx", def = "{'timestamp': -1, '_id': -1}")
 public class SystemMessage {
     @Id
     private String id;
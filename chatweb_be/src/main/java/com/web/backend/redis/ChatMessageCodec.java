@@ -0,0 +1,112 @@
+package com.web.backend.redis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.web.backend.common.ContentType;
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+
+import static com.web.backend.redis.RedisTypeCodec.*;
+
+/**
+ * Layout of the messages kept in the {@code chat:recent:*} windows.
+ * Version 2 appends {@code changeSeq}, version 3 {@code revision}.
+ */
+public class ChatMessageCodec implements RedisTypeCodec<ChatMessage> {
+
+    private static final int EDITED_FLAG = 1;
+    private static final int DELETED_FLAG = 1 << 1;
+
+    @Override
+    public byte tag() {
+        return 0x01;
+    }
+
+    @Override
+    public Class<ChatMessage> type() {
+        return ChatMessage.class;
+    }
+
+    @Override
+    public void write(ChatMessage msg, DataOutput out) throws IOException {
+        writeString(out, msg.getId());
+        writeString(out, msg.getConversationId());
+        writeString(out, msg.getSender());
+        writeString(out, msg.getRecipient());
+        writeString(out, msg.getContent());
+        writeEnum(out, msg.getContentType());
+        writeEnum(out, msg.getMessageType());
+        writeString(out, msg.getColor());
+        writeString(out, msg.getReplyToId());
+        writeString(out, msg.getFileUrl());
+        writeString(out, msg.getFileName());
+        writeNullableLong(out, msg.getFileSize());
+        writeDateTime(out, msg.getTimestamp());
+        writeEnum(out, msg.getStatus());
+        out.writeByte((msg.isEdited() ? EDITED_FLAG : 0) | (msg.isDeleted() ? DELETED_FLAG : 0));
+
+        Map<String, String> reactions = msg.getReactions();
+        writeVarLong(out, reactions == null ? 0 : reactions.size() + 1L);
+        if (reactions != null) {
+            for (Map.Entry<String, String> reaction : reactions.entrySet()) {
+                writeString(out, reaction.getKey());
+                writeString(out, reaction.getValue());
+            }
+        }
+
+        writeString(out, msg.getIv());
+        writeString(out, msg.getWrappedKeyRecipient());
+        writeString(out, msg.getWrappedKeySender());
+        writeString(out, msg.getLocalId());
+        writeNullableLong(out, msg.getChangeSeq());
+        writeNullableLong(out, msg.getRevision());
+    }
+
+    @Override
+    public ChatMessage read(DataInput in, int version) throws IOException {
+        ChatMessage msg = new ChatMessage();
+        msg.setId(readString(in));
+        msg.setConversationId(readString(in));
+        msg.setSender(readString(in));
+        msg.setRecipient(readString(in));
+        msg.setContent(readString(in));
+        msg.setContentType(readEnum(in, ContentType.class));
+        msg.setMessageType(readEnum(in, MessageType.class));
+        msg.setColor(readString(in));
+        msg.setReplyToId(readString(in));
+        msg.setFileUrl(readString(in));
+        msg.setFileName(readString(in));
+        msg.setFileSize(readNullableLong(in));
+        msg.setTimestamp(readDateTime(in));
+        msg.setStatus(readEnum(in, MessageStatus.class));
+        int flags = in.readUnsignedByte();
+        msg.setEdited((flags & EDITED_FLAG) != 0);
+        msg.setDeleted((flags & DELETED_FLAG) != 0);
+
+        long reactionCount = readVarLong(in);
+        if (reactionCount > 0) {
+            Map<String, String> reactions = new HashMap<>();
+            for (long i = 1; i < reactionCount; i++) {
+                reactions.put(readString(in), readString(in));
+            }
+            msg.setReactions(reactions);
+        }
+
+        msg.setIv(readString(in));
+        msg.setWrappedKeyRecipient(readString(in));
+        msg.setWrappedKeySender(readString(in));
+        msg.setLocalId(readString(in));
+        if (version >= 2) {
+            msg.setChangeSeq(readNullableLong(in));
+        }
+        if (version >= 3) {
+            msg.setRevision(readNullableLong(in));
+        }
+        return msg;
+    }
+}
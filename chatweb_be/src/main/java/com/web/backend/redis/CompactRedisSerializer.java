@@ -0,0 +1,114 @@
+package com.web.backend.redis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * RedisTemplate value serializer that writes the registered hot types as
+ * compact binary frames and everything else through the JSON fallback.
+ * <p>
+ * Frame layout: {@code [MAGIC][FORMAT_VERSION][tag]} followed by the codec's
+ * fields. {@code MAGIC} can never start a UTF-8 JSON document, so values that
+ * were written as JSON (by older nodes, scalars, or Lua counters) are still
+ * read through the fallback. Strings and numbers stay JSON on purpose: Lua
+ * scripts decode zset members with {@code cjson} and HINCRBY the counters.
+ * <p>
+ * Rolling upgrade: deploy with {@code app.redis.codec.compact-writes=false} so
+ * every node can read frames, then turn writes on. Frames of every earlier
+ * version are still read. Since layouts only grow by appending fields, a frame
+ * of a newer version is read as the newest known one and its trailing fields
+ * are ignored, so a version bump needs no extra rollout step: during the
+ * rollout old nodes drop the new fields from what they read, and new nodes see
+ * them as null in frames written by old nodes.
+ * <ul>
+ * <li>Version 2 appends {@code ChatMessage.changeSeq}: a message cached by an
+ * old node has no sequence until the window is filled again (one TTL).</li>
+ * <li>Version 3 appends {@code ChatMessage.revision}: a copy cached by an old
+ * node has no revision, so any patch replaces it.</li>
+ * </ul>
+ * A change that is not an append needs a new codec tag; old nodes treat an
+ * unknown tag as undecodable, which the caches count as a miss.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /** 0xC1 is not a valid UTF-8 lead byte. */
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final byte FORMAT_VERSION = 0x03;
+
+    private final RedisSerializer<Object> fallback;
+    private final boolean compactWrites;
+    private final Map<Class<?>, RedisTypeCodec<?>> codecsByType = new HashMap<>();
+    private final RedisTypeCodec<?>[] codecsByTag = new RedisTypeCodec<?>[256];
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback, boolean compactWrites,
+            List<RedisTypeCodec<?>> codecs) {
+        this.fallback = fallback;
+        this.compactWrites = compactWrites;
+        for (RedisTypeCodec<?> codec : codecs) {
+            int tag = codec.tag() & 0xFF;
+            if (codecsByTag[tag] != null) {
+                throw new IllegalArgumentException("Duplicate Redis codec tag " + tag);
+            }
+            codecsByTag[tag] = codec;
+            codecsByType.put(codec.type(), codec);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        RedisTypeCodec<?> codec = value == null || !compactWrites ? null : codecsByType.get(value.getClass());
+        if (codec == null) {
+            return fallback.serialize(value);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(codec.tag());
+            write(codec, value, out);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Could not write " + value.getClass().getSimpleName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            byte version = in.readByte();
+            if (version < 1) {
+                throw new SerializationException("Unsupported Redis frame version " + version);
+            }
+            RedisTypeCodec<?> codec = codecsByTag[in.readUnsignedByte()];
+            if (codec == null) {
+                throw new SerializationException("Unknown Redis codec tag");
+            }
+            // Fields appended by a newer node follow the known ones and are left unread
+            return codec.read(in, Math.min(version, FORMAT_VERSION));
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof SerializationException serializationException) {
+                throw serializationException;
+            }
+            throw new SerializationException("Could not read compact Redis frame", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(RedisTypeCodec<T> codec, Object value, DataOutputStream out) throws IOException {
+        codec.write((T) value, out);
+    }
+}
@@ -0,0 +1,63 @@
+package com.web.backend.redis;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Runs Lua scripts through EVALSHA, so the body is sent only when the server
+ * does not know it yet (first call, restart or SCRIPT FLUSH), like
+ * {@code RedisTemplate.execute(RedisScript, ...)} does. Kept for the callers
+ * that pass raw key and argument bytes on a {@link RedisConnection}.
+ */
+public final class RedisScripts {
+
+    private static final String NO_SCRIPT_STRING = "NOSCRIPT";
+
+    private RedisScripts() {
+    }
+
+    /**
+     * Runs the script by SHA1 and falls back to EVAL when the server does not
+     * have it. Not for pipelines, where the error only surfaces on close: queue
+     * {@link #load} ahead of the calls instead.
+     */
+    public static <T> T eval(RedisConnection connection, RedisScript<?> script, int numKeys, byte[]... keysAndArgs) {
+        ReturnType returnType = ReturnType.fromJavaType(script.getResultType());
+        try {
+            return connection.scriptingCommands().evalSha(script.getSha1(), returnType, numKeys, keysAndArgs);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            return connection.scriptingCommands().eval(
+                    script.getScriptAsString().getBytes(StandardCharsets.UTF_8), returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    /**
+     * Runs the script by SHA1 only; for pipelines that start with {@link #load}.
+     */
+    public static void evalSha(RedisConnection connection, RedisScript<?> script, int numKeys, byte[]... keysAndArgs) {
+        connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.fromJavaType(script.getResultType()),
+                numKeys, keysAndArgs);
+    }
+
+    /**
+     * SCRIPT LOAD, so the EVALSHA calls queued after it in the same pipeline find the script.
+     */
+    public static void load(RedisConnection connection, RedisScript<?> script) {
+        connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains(NO_SCRIPT_STRING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,10 +1,19 @@
 package com.web.backend.redis;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
 @Service
 @RequiredArgsConstructor
@@ -14,14 +23,64 @@ public class RedisSubscriber {
     private final SimpMessagingTemplate simpMessagingTemplate;
     private final ObjectMapper objectMapper;
 
-    public void receiveMessage(String message) {
+    public void receiveMessage(byte[] message) {
+        try {
+            if (RedisWsFrame.isEnvelope(message)) {
+                List<RedisWsFrame> frames = RedisWsFrame.decode(message);
+                for (RedisWsFrame frame : frames) {
+                    dispatch(frame);
+                }
+                log.info("Routed batch of {} WebSocket messages via Redis Pub/Sub", frames.size());
+            } else {
+                receiveJson(new String(message, StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            log.error("Error processing Redis WebSocket message: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the pre-encoded body straight to the user destination, skipping the message converter.
+     */
+    private void dispatch(RedisWsFrame frame) {
+        try {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setLeaveMutable(true);
+            String user = frame.getRecipient().replace("/", "%2F");
+            simpMessagingTemplate.send(simpMessagingTemplate.getUserDestinationPrefix() + user + frame.getDestination(),
+                    MessageBuilder.createMessage(frame.getBody(), accessor.getMessageHeaders()));
+            log.debug("Routed WebSocket message to {} via Redis Pub/Sub", frame.getRecipient());
+        } catch (Exception e) {
+            log.error("Error dispatching Redis WebSocket message: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * JSON frames from nodes that predate the binary envelope.
+     */
+    private void receiveJson(String message) throws Exception {
+        JsonNode root = objectMapper.readTree(message);
+        if (root.isTextual()) {
+            // Frames published through the JSON-valued RedisTemplate arrive double-encoded
+            root = objectMapper.readTree(root.asText());
+        }
+        if (root.isArray()) {
+            for (JsonNode node : root) {
+                dispatch(node);
+            }
+        } else {
+            dispatch(root);
+        }
+    }
+
+    private void dispatch(JsonNode node) {
         try {
-            RedisWsMessage wsMessage = objectMapper.readValue(message, RedisWsMessage.class);
+            RedisWsMessage wsMessage = objectMapper.treeToValue(node, RedisWsMessage.class);
             simpMessagingTemplate.convertAndSendToUser(wsMessage.getRecipient(), wsMessage.getDestination(),
                     wsMessage.getPayload());
-            log.info("Routed WebSocket message to {} via Redis Pub/Sub", wsMessage.getRecipient());
         } catch (Exception e) {
-            log.error("Error processing Redis WebSocket message: {}", e.getMessage(), e);
+            log.error("Error dispatching Redis WebSocket message: {}", e.getMessage(), e);
         }
     }
 }
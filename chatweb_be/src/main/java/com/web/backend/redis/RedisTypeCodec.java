@@ -0,0 +1,110 @@
+package com.web.backend.redis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Schema-aware binary layout of one hot type stored through the RedisTemplate.
+ * Fields are written in a fixed order without names; a layout change needs a
+ * new {@link CompactRedisSerializer#FORMAT_VERSION} while the old one is still read.
+ * Layouts only ever grow by appending fields, so older nodes can still read the
+ * fields they know from a newer frame.
+ */
+public interface RedisTypeCodec<T> {
+
+    /** Identifies the type inside a compact frame; must be unique and never reused. */
+    byte tag();
+
+    Class<T> type();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * @param version format version the frame was written with; fields added in
+     *                later versions must be skipped when it is older
+     */
+    T read(DataInput in, int version) throws IOException;
+
+    /** Unsigned LEB128, so small lengths take a single byte. */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /** Length + 1 followed by UTF-8 bytes; 0 means null. */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.toIntExact(length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    static <E extends Enum<E>> void writeEnum(DataOutput out, E value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+        String name = readString(in);
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    /** Zone-free: the wall-clock value is kept exactly, as with the JSON form. */
+    static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(out, value.getNano());
+        }
+    }
+
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long epochSecond = in.readLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(in), ZoneOffset.UTC);
+    }
+}
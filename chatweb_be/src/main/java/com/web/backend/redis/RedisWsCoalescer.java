@@ -0,0 +1,116 @@
+package com.web.backend.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers cross-node deliveries per target server and publishes them as one
+ * binary {@link RedisWsFrame} envelope on {@code channel:server:<id>}, either
+ * every {@code linger-ms} or as soon as {@code max-batch} entries are pending
+ * for a server. Payloads are encoded to their STOMP body once, on enqueue.
+ */
+@Service
+@Slf4j(topic = "REDIS-WS-COALESCER")
+public class RedisWsCoalescer {
+
+    private static final String CHANNEL_SERVER_STRING = "channel:server:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxBatchSize;
+
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    public RedisWsCoalescer(StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${app.websocket.forward.linger-ms:5}") long lingerMs,
+            @Value("${app.websocket.forward.max-batch:64}") int maxBatchSize) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        scheduler.scheduleWithFixedDelay(this::flushAll, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(String serverId, RedisWsMessage message) {
+        RedisWsFrame frame;
+        try {
+            frame = new RedisWsFrame(message.getRecipient(), message.getDestination(),
+                    objectMapper.writeValueAsBytes(message.getPayload()));
+        } catch (Exception e) {
+            log.error("Failed to encode delivery for {}: {}", message.getRecipient(), e.getMessage());
+            return;
+        }
+        Buffer buffer = buffers.computeIfAbsent(serverId, k -> new Buffer());
+        if (buffer.add(frame) >= maxBatchSize) {
+            flush(serverId, buffer);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flushAll();
+    }
+
+    private void flushAll() {
+        buffers.forEach(this::flush);
+    }
+
+    private void flush(String serverId, Buffer buffer) {
+        // Drain and publish under one lock so envelopes for a server leave in order
+        synchronized (buffer.publishLock) {
+            List<RedisWsFrame> batch = buffer.drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                byte[] channel = (CHANNEL_SERVER_STRING + serverId).getBytes(StandardCharsets.UTF_8);
+                byte[] envelope = RedisWsFrame.encode(batch);
+                stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, envelope));
+                log.debug("Published {} deliveries to Server {}", batch.size(), serverId);
+            } catch (Exception e) {
+                log.error("Failed to publish {} deliveries to Server {}: {}", batch.size(), serverId,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private static final class Buffer {
+
+        private final Object publishLock = new Object();
+
+        private List<RedisWsFrame> pending = new ArrayList<>();
+
+        synchronized int add(RedisWsFrame frame) {
+            pending.add(frame);
+            return pending.size();
+        }
+
+        synchronized List<RedisWsFrame> drain() {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            List<RedisWsFrame> batch = pending;
+            pending = new ArrayList<>();
+            return batch;
+        }
+    }
+}
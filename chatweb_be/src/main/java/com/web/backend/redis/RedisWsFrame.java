@@ -0,0 +1,78 @@
+package com.web.backend.redis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A cross-node delivery whose STOMP body is already encoded, so the receiving
+ * node can hand the bytes to the broker without parsing them.
+ * <p>
+ * Envelope layout: {@code [FORMAT_VERSION][count:int]} followed by
+ * {@code [recipient:utf][destination:utf][length:int][body]} per frame.
+ */
+@Getter
+@AllArgsConstructor
+public class RedisWsFrame {
+
+    /** First byte of a binary envelope; never the first byte of a JSON document. */
+    public static final byte FORMAT_VERSION = 0x01;
+
+    private final String recipient;
+    private final String destination;
+    private final byte[] body;
+
+    public static boolean isEnvelope(byte[] message) {
+        return message.length > 0 && message[0] == FORMAT_VERSION;
+    }
+
+    public static byte[] encode(List<RedisWsFrame> frames) {
+        int size = 5;
+        for (RedisWsFrame frame : frames) {
+            size += frame.body.length + 64;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(frames.size());
+            for (RedisWsFrame frame : frames) {
+                out.writeUTF(frame.recipient);
+                out.writeUTF(frame.destination);
+                out.writeInt(frame.body.length);
+                out.write(frame.body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<RedisWsFrame> decode(byte[] envelope) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(envelope))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported envelope version: " + version);
+            }
+            int count = in.readInt();
+            List<RedisWsFrame> frames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String recipient = in.readUTF();
+                String destination = in.readUTF();
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                frames.add(new RedisWsFrame(recipient, destination, body));
+            }
+            return frames;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.web.backend.redis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.web.backend.model.RegisterData;
+
+import static com.web.backend.redis.RedisTypeCodec.*;
+
+/**
+ * Layout of the pending registrations kept until the OTP is confirmed.
+ */
+public class RegisterDataCodec implements RedisTypeCodec<RegisterData> {
+
+    @Override
+    public byte tag() {
+        return 0x02;
+    }
+
+    @Override
+    public Class<RegisterData> type() {
+        return RegisterData.class;
+    }
+
+    @Override
+    public void write(RegisterData data, DataOutput out) throws IOException {
+        writeString(out, data.getUsername());
+        writeString(out, data.getEmail());
+        writeString(out, data.getPassword());
+        writeNullableLong(out, data.getRoleId());
+        writeString(out, data.getOtp());
+    }
+
+    @Override
+    public RegisterData read(DataInput in, int version) throws IOException {
+        return RegisterData.builder()
+                .username(readString(in))
+                .email(readString(in))
+                .password(readString(in))
+                .roleId(readNullableLong(in))
+                .otp(readString(in))
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ConversationRepository extends MongoRepository<Conversation, String>, ConversationRepositoryCustom {
+
+    @Query("{ 'participants': ?0 }")
+    List<Conversation> findInbox(String username, Pageable pageable);
+
+    @Query("{ 'participants': ?0, '$or': [ { 'lastTimestamp': { '$lt': ?1 } }, { 'lastTimestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Conversation> findInboxBefore(String username, LocalDateTime timestamp, String conversationId, Pageable pageable);
+}
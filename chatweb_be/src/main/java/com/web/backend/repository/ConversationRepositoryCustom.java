@@ -0,0 +1,36 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.ChatMessage;
+
+import java.util.List;
+
+public interface ConversationRepositoryCustom {
+
+    /**
+     * Net effect of a run of chat-messages records on one conversation.
+     *
+     * @param partition     partition of the records
+     * @param offset        offset of the last record of the run
+     * @param newest        newest new message, or null when the run has none
+     * @param mutations     edited or revoked messages, in record order
+     */
+    record InboxUpdate(String conversationId, List<String> participants, int partition, long offset,
+            ChatMessage newest, List<ChatMessage> mutations) {
+    }
+
+    /**
+     * Applies the updates with one ordered bulk write. An update whose offset is
+     * not past the one already applied to its conversation only refreshes
+     * previews, so redelivering a batch does not move the preview back.
+     */
+    void applyInboxUpdates(List<InboxUpdate> updates);
+
+    /**
+     * Creates the missing inbox entries from the last chat message of every
+     * conversation in {@code messages}. Existing entries are left untouched, so
+     * it is safe to run while the inbox consumer is live.
+     *
+     * @return number of entries created
+     */
+    long backfillFromMessages(int batchSize);
+}
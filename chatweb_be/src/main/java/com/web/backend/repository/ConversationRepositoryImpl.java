@@ -0,0 +1,146 @@
+package com.web.backend.repository;
+
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ConversationRepositoryImpl implements ConversationRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    private static final String ID_STRING = "id";
+    private static final String PARTICIPANTS_STRING = "participants";
+    private static final String SOURCE_PARTITION_STRING = "sourcePartition";
+    private static final String SOURCE_OFFSET_STRING = "sourceOffset";
+    private static final String LAST_MESSAGE_ID_STRING = "lastMessageId";
+    private static final String LAST_SENDER_STRING = "lastSender";
+    private static final String LAST_CONTENT_STRING = "lastContent";
+    private static final String LAST_CONTENT_TYPE_STRING = "lastContentType";
+    private static final String LAST_DELETED_STRING = "lastDeleted";
+    private static final String LAST_TIMESTAMP_STRING = "lastTimestamp";
+    private static final String CONVERSATION_ID_STRING = "conversationId";
+    private static final String MESSAGE_TYPE_STRING = "messageType";
+    private static final String TIMESTAMP_STRING = "timestamp";
+    private static final String LAST_STRING = "last";
+
+    private static final int PREVIEW_LENGTH = 120;
+
+    @Override
+    public void applyInboxUpdates(List<InboxUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        // Ordered: each conversation is created before it is updated
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Conversation.class);
+        for (InboxUpdate update : updates) {
+            Query byId = Query.query(Criteria.where(ID_STRING).is(update.conversationId()));
+            if (update.newest() != null) {
+                bulk.upsert(byId, new Update().setOnInsert(PARTICIPANTS_STRING, update.participants()));
+            }
+
+            Update latest = new Update()
+                    .set(SOURCE_PARTITION_STRING, update.partition())
+                    .set(SOURCE_OFFSET_STRING, update.offset());
+            if (update.newest() != null) {
+                setPreview(latest, update.newest());
+                latest.set(LAST_TIMESTAMP_STRING, update.newest().getTimestamp());
+            }
+            // A different partition means the topic was resized; its offsets start over
+            bulk.updateOne(Query.query(Criteria.where(ID_STRING).is(update.conversationId()).orOperator(
+                    Criteria.where(SOURCE_PARTITION_STRING).ne(update.partition()),
+                    Criteria.where(SOURCE_OFFSET_STRING).lt(update.offset()))), latest);
+
+            for (ChatMessage mutation : update.mutations()) {
+                Update preview = new Update();
+                setPreview(preview, mutation);
+                bulk.updateOne(Query.query(Criteria.where(ID_STRING).is(update.conversationId())
+                        .and(LAST_MESSAGE_ID_STRING).is(mutation.getId())), preview);
+            }
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public long backfillFromMessages(int batchSize) {
+        // Sorted like history_idx, so the newest chat message of each conversation comes first
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(MESSAGE_TYPE_STRING).is(MessageType.CHAT)
+                        .and(TIMESTAMP_STRING).ne(null)),
+                Aggregation.sort(Sort.by(Sort.Order.asc(CONVERSATION_ID_STRING), Sort.Order.desc(TIMESTAMP_STRING))),
+                Aggregation.group(CONVERSATION_ID_STRING).first(Aggregation.ROOT).as(LAST_STRING),
+                Aggregation.replaceRoot(LAST_STRING))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        long created = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<ChatMessage> latest = mongoTemplate.aggregateStream(aggregation, ChatMessage.class,
+                ChatMessage.class)) {
+            Iterator<ChatMessage> messages = latest.iterator();
+            while (messages.hasNext()) {
+                ChatMessage message = messages.next();
+                if (message.getConversationId() == null || message.getSender() == null
+                        || message.getRecipient() == null) {
+                    continue;
+                }
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Conversation.class);
+                }
+                // setOnInsert only: an entry written by the inbox consumer is newer
+                Update update = new Update()
+                        .setOnInsert(PARTICIPANTS_STRING, Conversation.participantsOf(message.getSender(), message.getRecipient()))
+                        .setOnInsert(LAST_TIMESTAMP_STRING, message.getTimestamp());
+                setPreview(update, message, true);
+                bulk.upsert(Query.query(Criteria.where(ID_STRING).is(message.getConversationId())), update);
+                if (++pending == batchSize) {
+                    created += bulk.execute().getUpserts().size();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            created += bulk.execute().getUpserts().size();
+        }
+        return created;
+    }
+
+    private static void setPreview(Update update, ChatMessage message) {
+        setPreview(update, message, false);
+    }
+
+    private static void setPreview(Update update, ChatMessage message, boolean onInsert) {
+        String content = message.getContent();
+        if (content != null && content.length() > PREVIEW_LENGTH) {
+            content = content.substring(0, PREVIEW_LENGTH);
+        }
+        setField(update, LAST_MESSAGE_ID_STRING, message.getId(), onInsert);
+        setField(update, LAST_SENDER_STRING, message.getSender(), onInsert);
+        setField(update, LAST_CONTENT_STRING, content, onInsert);
+        setField(update, LAST_CONTENT_TYPE_STRING, message.getContentType(), onInsert);
+        setField(update, LAST_DELETED_STRING, message.isDeleted(), onInsert);
+    }
+
+    private static void setField(Update update, String field, Object value, boolean onInsert) {
+        if (onInsert) {
+            update.setOnInsert(field, value);
+        } else {
+            update.set(field, value);
+        }
+    }
+}
@@ -3,12 +3,14 @@ package com.web.backend.repository;
 import com.web.backend.common.FriendshipStatus;
 import com.web.backend.model.FriendshipEntity;
 import com.web.backend.model.UserEntity;
+import com.web.backend.repository.projection.FriendPairProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 import org.springframework.data.repository.query.Param;
@@ -42,4 +44,10 @@ public interface FriendshipRepository extends JpaRepository<FriendshipEntity, Lo
            "WHERE (f.requester.username = :username OR f.addressee.username = :username) " +
            "AND f.status = 'ACCEPTED'")
     List<String> findAllFriendUsernamesByUsername(@Param("username") String username);
+
+    @Query("SELECT new com.web.backend.repository.projection.FriendPairProjection(f.requester.username, f.addressee.username) " +
+           "FROM FriendshipEntity f " +
+           "WHERE (f.requester.username IN :usernames OR f.addressee.username IN :usernames) " +
+           "AND f.status = 'ACCEPTED'")
+    List<FriendPairProjection> findAcceptedFriendPairs(@Param("usernames") Collection<String> usernames);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.web.backend.repository;
 
+import com.web.backend.repository.projection.RecipientUnreadCountProjection;
 import com.web.backend.repository.projection.UnreadCountProjection;
 import com.web.backend.model.ChatMessage;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -9,19 +11,20 @@ import org.springframework.data.mongodb.repository.Query;
 
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 
-public interface MessageRepository extends MongoRepository<ChatMessage, String> {
+public interface MessageRepository extends MongoRepository<ChatMessage, String>, MessageRepositoryCustom {
 
     @Query("{ 'conversationId': ?0, 'messageType': 'CHAT' }")
     List<ChatMessage> findByConversationId(String conversationId, Pageable pageable);
 
-    @Query("{ 'conversationId': ?0, 'messageType': 'CHAT', 'timestamp': { '$lt': ?1 } }")
-    List<ChatMessage> findByConversationIdAndTimestampBefore(String conversationId, LocalDateTime cursor, Pageable pageable);
+    @Query("{ 'conversationId': ?0, 'messageType': 'CHAT', '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<ChatMessage> findByConversationIdBefore(String conversationId, LocalDateTime timestamp, ObjectId id, Pageable pageable);
 
-    @Query("{ 'recipient': ?0, 'sender': ?1, 'status': 'SENT', 'messageType': 'CHAT' }")
-    List<ChatMessage> findUnreadMessagesFromSender(String recipient, String sender);
+    @Query("{ 'conversationId': ?0, 'changeSeq': { '$gt': ?1, '$lte': ?2 } }")
+    List<ChatMessage> findChangesBetween(String conversationId, long since, long upTo, Pageable pageable);
 
     @Query(value = "{ $or: [ { 'sender': ?0 }, { 'recipient': ?0 } ] }", exists = true)
     boolean existsBySenderOrRecipient(String username);
@@ -32,4 +35,11 @@ public interface MessageRepository extends MongoRepository<ChatMessage, String>
             "{ '$project': { 'sender': '$_id', 'count': 1, '_id': 0 } }"
     })
     List<UnreadCountProjection> countUnreadMessagesBySender(String recipientUsername);
+
+    @Aggregation(pipeline = {
+            "{ '$match': { 'recipient': { '$in': ?0 }, 'status': 'SENT', 'messageType': 'CHAT' } }",
+            "{ '$group': { '_id': { 'recipient': '$recipient', 'sender': '$sender' }, 'count': { '$sum': 1 } } }",
+            "{ '$project': { 'recipient': '$_id.recipient', 'sender': '$_id.sender', 'count': 1, '_id': 0 } }"
+    })
+    List<RecipientUnreadCountProjection> countUnreadMessagesBySenderForRecipients(Collection<String> recipientUsernames);
 }
@@ -0,0 +1,68 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.ChatMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MessageRepositoryCustom {
+
+    /**
+     * Inserts every message whose id is not stored yet with one unordered bulk write.
+     * Already stored messages are left untouched, so replaying a batch is harmless.
+     *
+     * @return ids of the messages that are in the database after the call; messages
+     *         whose write failed individually are left out
+     */
+    Set<String> bulkInsertIfAbsent(List<ChatMessage> messages);
+
+    /**
+     * Reserves a contiguous block of change sequence numbers per conversation.
+     *
+     * @param counts number of sequence numbers wanted per conversation id
+     * @return the first reserved number per conversation id
+     */
+    Map<String, Long> reserveChangeSeqs(Map<String, Integer> counts);
+
+    /**
+     * Raises the change sequence of already stored messages, by message id.
+     */
+    void stampChangeSeqs(Map<String, Long> seqByMessageId);
+
+    /**
+     * Publishes every sequence number up to the given one, per conversation id,
+     * to {@link #findCommittedChangeSeq}.
+     */
+    void commitChangeSeqs(Map<String, Long> committedByConversationId);
+
+    /**
+     * @return the highest change sequence whose writes are complete, or 0
+     */
+    long findCommittedChangeSeq(String conversationId);
+
+    /**
+     * Marks every message from {@code sender} to {@code recipient} up to the given
+     * time as read with a single multi-document update.
+     *
+     * @return number of messages that were still unread
+     */
+    long markReadUpTo(String recipient, String sender, LocalDateTime upTo);
+
+    /**
+     * Replaces the content of a message sent by {@code sender} that is not revoked,
+     * in one conditional update.
+     *
+     * @return the updated message, or null when no message matched
+     */
+    ChatMessage editContent(String messageId, String sender, String newContent);
+
+    /**
+     * Clears the content, attachment and reactions of a message sent by
+     * {@code sender} that is not revoked yet, in one conditional update.
+     *
+     * @return the revoked message, or null when no message matched
+     */
+    ChatMessage revoke(String messageId, String sender);
+}
@@ -0,0 +1,197 @@
+package com.web.backend.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.ConversationSequence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RequiredArgsConstructor
+@Slf4j(topic = "MESSAGE-REPOSITORY")
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    private static final String ID_STRING = "id";
+    private static final String MONGO_ID_STRING = "_id";
+    private static final String SEQ_STRING = "seq";
+    private static final String COMMITTED_STRING = "committed";
+    private static final String CHANGE_SEQ_STRING = "changeSeq";
+    private static final String RECIPIENT_STRING = "recipient";
+    private static final String SENDER_STRING = "sender";
+    private static final String STATUS_STRING = "status";
+    private static final String MESSAGE_TYPE_STRING = "messageType";
+    private static final String TIMESTAMP_STRING = "timestamp";
+    private static final String CONTENT_STRING = "content";
+    private static final String FILE_URL_STRING = "fileUrl";
+    private static final String FILE_NAME_STRING = "fileName";
+    private static final String FILE_SIZE_STRING = "fileSize";
+    private static final String REACTIONS_STRING = "reactions";
+    private static final String IS_EDITED_STRING = "isEdited";
+    private static final String IS_DELETED_STRING = "isDeleted";
+    private static final String REVISION_STRING = "revision";
+
+    @Override
+    public Set<String> bulkInsertIfAbsent(List<ChatMessage> messages) {
+        Set<String> persisted = new LinkedHashSet<>();
+        if (messages.isEmpty()) {
+            return persisted;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+        for (ChatMessage message : messages) {
+            if (message.getId() == null) {
+                message.setId(new ObjectId().toHexString());
+            }
+            Document document = new Document();
+            mongoTemplate.getConverter().write(message, document);
+            document.remove(MONGO_ID_STRING);
+
+            Update update = new Update();
+            document.forEach(update::setOnInsert);
+            bulk.upsert(Query.query(Criteria.where(ID_STRING).is(message.getId())), update);
+            persisted.add(message.getId());
+        }
+
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            Set<String> failed = new LinkedHashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(messages.get(error.getIndex()).getId());
+                log.warn("Bulk write failed for message {}: {}", messages.get(error.getIndex()).getId(),
+                        error.getMessage());
+            }
+            // A concurrent upsert of the same id fails with a duplicate key yet the document is there
+            failed.removeAll(findExistingIds(failed));
+            persisted.removeAll(failed);
+        }
+        return persisted;
+    }
+
+    @Override
+    public Map<String, Long> reserveChangeSeqs(Map<String, Integer> counts) {
+        Map<String, Long> firsts = new HashMap<>();
+        if (counts.isEmpty()) {
+            return firsts;
+        }
+
+        // Each conversation is sequenced by a single partition consumer, so read-then-raise does not race
+        Query query = Query.query(Criteria.where(ID_STRING).in(counts.keySet()));
+        query.fields().include(SEQ_STRING);
+        Map<String, Long> floors = new HashMap<>();
+        for (ConversationSequence sequence : mongoTemplate.find(query, ConversationSequence.class)) {
+            floors.put(sequence.getId(), sequence.getSeq());
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSequence.class);
+        counts.forEach((conversationId, count) -> {
+            long floor = floors.getOrDefault(conversationId, 0L);
+            firsts.put(conversationId, floor + 1);
+            bulk.upsert(Query.query(Criteria.where(ID_STRING).is(conversationId)),
+                    new Update().max(SEQ_STRING, floor + count));
+        });
+        bulk.execute();
+        return firsts;
+    }
+
+    @Override
+    public void stampChangeSeqs(Map<String, Long> seqByMessageId) {
+        if (seqByMessageId.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+        seqByMessageId.forEach((id, seq) -> bulk.updateOne(Query.query(Criteria.where(ID_STRING).is(id)),
+                new Update().max(CHANGE_SEQ_STRING, seq)));
+        bulk.execute();
+    }
+
+    @Override
+    public void commitChangeSeqs(Map<String, Long> committedByConversationId) {
+        if (committedByConversationId.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSequence.class);
+        committedByConversationId.forEach((conversationId, committed) -> bulk.upsert(
+                Query.query(Criteria.where(ID_STRING).is(conversationId)),
+                new Update().max(COMMITTED_STRING, committed)));
+        bulk.execute();
+    }
+
+    @Override
+    public long findCommittedChangeSeq(String conversationId) {
+        Query query = Query.query(Criteria.where(ID_STRING).is(conversationId));
+        query.fields().include(COMMITTED_STRING);
+        ConversationSequence sequence = mongoTemplate.findOne(query, ConversationSequence.class);
+        return sequence == null ? 0 : sequence.getCommitted();
+    }
+
+    @Override
+    public long markReadUpTo(String recipient, String sender, LocalDateTime upTo) {
+        Query unread = Query.query(Criteria.where(RECIPIENT_STRING).is(recipient)
+                .and(STATUS_STRING).is(MessageStatus.SENT)
+                .and(MESSAGE_TYPE_STRING).is(MessageType.CHAT)
+                .and(SENDER_STRING).is(sender)
+                .and(TIMESTAMP_STRING).lte(upTo));
+        return mongoTemplate.updateMulti(unread, new Update().set(STATUS_STRING, MessageStatus.READ), ChatMessage.class)
+                .getModifiedCount();
+    }
+
+    @Override
+    public ChatMessage editContent(String messageId, String sender, String newContent) {
+        Update update = new Update()
+                .set(CONTENT_STRING, newContent)
+                .set(IS_EDITED_STRING, true)
+                .inc(REVISION_STRING, 1);
+        return mongoTemplate.findAndModify(ownLiveMessage(messageId, sender), update,
+                FindAndModifyOptions.options().returnNew(true), ChatMessage.class);
+    }
+
+    @Override
+    public ChatMessage revoke(String messageId, String sender) {
+        Update update = new Update()
+                .set(CONTENT_STRING, "")
+                .unset(FILE_URL_STRING)
+                .unset(FILE_NAME_STRING)
+                .unset(FILE_SIZE_STRING)
+                .unset(REACTIONS_STRING)
+                .set(IS_DELETED_STRING, true)
+                .inc(REVISION_STRING, 1);
+        return mongoTemplate.findAndModify(ownLiveMessage(messageId, sender), update,
+                FindAndModifyOptions.options().returnNew(true), ChatMessage.class);
+    }
+
+    private static Query ownLiveMessage(String messageId, String sender) {
+        return Query.query(Criteria.where(ID_STRING).is(messageId)
+                .and(SENDER_STRING).is(sender)
+                .and(IS_DELETED_STRING).ne(true));
+    }
+
+    private Set<String> findExistingIds(Set<String> ids) {
+        Query query = Query.query(Criteria.where(ID_STRING).in(ids));
+        query.fields().include(ID_STRING);
+        Set<String> existing = new LinkedHashSet<>();
+        for (ChatMessage message : mongoTemplate.find(query, ChatMessage.class)) {
+            existing.add(message.getId());
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,7 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.ReadWatermark;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ReadWatermarkRepository extends MongoRepository<ReadWatermark, String>, ReadWatermarkRepositoryCustom {
+}
@@ -0,0 +1,14 @@
+package com.web.backend.repository;
+
+import java.time.LocalDateTime;
+
+public interface ReadWatermarkRepositoryCustom {
+
+    /**
+     * Moves the reader's watermark of a conversation up to the given message,
+     * creating it if needed. A watermark that is already further is kept.
+     *
+     * @return whether the watermark moved
+     */
+    boolean advance(String conversationId, String reader, String messageId, LocalDateTime timestamp);
+}
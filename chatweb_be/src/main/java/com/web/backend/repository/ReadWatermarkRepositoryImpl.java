@@ -0,0 +1,42 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.ReadWatermark;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class ReadWatermarkRepositoryImpl implements ReadWatermarkRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    private static final String ID_STRING = "id";
+    private static final String CONVERSATION_ID_STRING = "conversationId";
+    private static final String READER_STRING = "reader";
+    private static final String LAST_READ_MESSAGE_ID_STRING = "lastReadMessageId";
+    private static final String LAST_READ_TIMESTAMP_STRING = "lastReadTimestamp";
+
+    @Override
+    public boolean advance(String conversationId, String reader, String messageId, LocalDateTime timestamp) {
+        Query behind = Query.query(Criteria.where(ID_STRING).is(ReadWatermark.idOf(conversationId, reader))
+                .orOperator(Criteria.where(LAST_READ_TIMESTAMP_STRING).lt(timestamp),
+                        Criteria.where(LAST_READ_TIMESTAMP_STRING).exists(false)));
+        Update update = new Update()
+                .setOnInsert(CONVERSATION_ID_STRING, conversationId)
+                .setOnInsert(READER_STRING, reader)
+                .set(LAST_READ_MESSAGE_ID_STRING, messageId)
+                .set(LAST_READ_TIMESTAMP_STRING, timestamp);
+        try {
+            mongoTemplate.upsert(behind, update, ReadWatermark.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The watermark exists and is already at or past this message
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.web.backend.repository;
 
 import com.web.backend.model.SystemMessage;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
@@ -13,6 +14,6 @@ public interface SystemMessageRepository extends MongoRepository<SystemMessage,
     @Query("{}")
     List<SystemMessage> findInitialMessage(Pageable pageable);
 
-    @Query("{'timestamp': { '$lt': ?0 } }")
-    List<SystemMessage> findMessage(Instant cursor, Pageable pageable);
+    @Query("{ '$or': [ { 'timestamp': { '$lt': ?0 } }, { 'timestamp': ?0, '_id': { '$lt': ?1 } } ] }")
+    List<SystemMessage> findMessageBefore(Instant timestamp, ObjectId id, Pageable pageable);
 }
@@ -23,6 +23,9 @@ public interface UserRepository extends JpaRepository<UserEntity, Long>, JpaSpec
         @EntityGraph(attributePaths = { "role", "role.permissions" })
         Optional<UserEntity> findByUsername(String username);
 
+        @Query("SELECT u.userStatus FROM UserEntity u WHERE u.username = :username")
+        Optional<UserStatus> findUserStatusByUsername(@Param("username") String username);
+
         Optional<UserEntity> findByEmail(String email);
 
         Optional<UserEntity> findByProviderId(String providerId);
@@ -43,6 +46,11 @@ public interface UserRepository extends JpaRepository<UserEntity, Long>, JpaSpec
         @Query("UPDATE UserEntity u SET u.isOnline = :isOnline WHERE u.username = :username")
         void updateOnlineStatus(String username, boolean isOnline);
 
+        @Modifying
+        @Transactional
+        @Query("UPDATE UserEntity u SET u.isOnline = :isOnline WHERE u.username IN :usernames")
+        int updateOnlineStatusIn(@Param("usernames") Collection<String> usernames, @Param("isOnline") boolean isOnline);
+
         @EntityGraph(attributePaths = { "role", "role.permissions" })
         @Query("SELECT u FROM UserEntity u WHERE u.userStatus != :status AND " +
                         "(LOWER(u.username) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -0,0 +1,6 @@
+package com.web.backend.repository.projection;
+
+public record FriendPairProjection(
+    String requester,
+    String addressee
+) {}
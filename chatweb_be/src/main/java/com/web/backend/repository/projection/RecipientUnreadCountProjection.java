@@ -0,0 +1,7 @@
+package com.web.backend.repository.projection;
+
+public record RecipientUnreadCountProjection(
+    String recipient,
+    String sender,
+    Long count
+) {}
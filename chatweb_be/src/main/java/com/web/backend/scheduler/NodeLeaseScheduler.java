@@ -0,0 +1,117 @@
+package com.web.backend.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.config.ServerIdentity;
+import com.web.backend.service.UserService;
+import com.web.backend.service.util.SessionRegistry;
+import com.web.backend.service.util.SessionRegistry.ReclaimedUser;
+import com.web.backend.service.util.WebSocketRoutingService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps this node's session lease alive and reclaims the sessions of nodes
+ * whose lease lapsed, so users of a crashed node go offline within one lease
+ * instead of after the zombie sweep.
+ * <p>
+ * The lease is renewed on a thread of its own: on the shared scheduler thread
+ * a slow sweep or reconciliation pass could delay the renewal past the lease
+ * TTL and get this live node reclaimed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j(topic = "NODE-LEASE")
+public class NodeLeaseScheduler {
+
+    private final SessionRegistry sessionRegistry;
+    private final SimpUserRegistry simpUserRegistry;
+    private final WebSocketRoutingService webSocketRoutingService;
+    private final UserService userService;
+
+    private final ScheduledExecutorService leaseExecutor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "node-lease"));
+
+    @Value("${app.presence.lease.renew-interval-ms:10000}")
+    private long renewIntervalMs;
+
+    @PostConstruct
+    public void start() {
+        leaseExecutor.scheduleWithFixedDelay(this::renewLease, 0, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void renewLease() {
+        try {
+            if (!sessionRegistry.renewLease()) {
+                // First run, or the lease lapsed and the sessions may have been reclaimed meanwhile
+                log.warn("Session lease was not held, re-registering local sessions");
+                Map<String, Integer> sessions = localSessions();
+                List<String> restored = sessionRegistry.sync(sessions);
+                webSocketRoutingService.registerRoutes(sessions.keySet());
+                userService.setUsersOnline(restored);
+            }
+        } catch (Exception e) {
+            log.error("Failed to renew the session lease", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.lease.reclaim-interval-ms:10000}", initialDelay = 15 * 1000)
+    public void reclaimExpiredNodes() {
+        try {
+            for (String serverId : sessionRegistry.findExpiredNodes()) {
+                apply(sessionRegistry.reclaim(serverId));
+            }
+        } catch (Exception e) {
+            log.error("Failed to reclaim sessions of expired nodes", e);
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        leaseExecutor.shutdownNow();
+        try {
+            sessionRegistry.releaseLease();
+            apply(sessionRegistry.reclaim(ServerIdentity.SERVER_ID));
+        } catch (Exception e) {
+            log.warn("Failed to release the session lease: {}", e.getMessage());
+        }
+    }
+
+    private void apply(List<ReclaimedUser> reclaimed) {
+        List<String> offline = new ArrayList<>();
+        for (ReclaimedUser user : reclaimed) {
+            if (user.serverId() == null) {
+                offline.add(user.username());
+            } else {
+                webSocketRoutingService.announceRoute(user.username(), user.serverId());
+            }
+        }
+        webSocketRoutingService.removeRoutes(offline);
+        userService.setUsersOffline(offline);
+    }
+
+    private Map<String, Integer> localSessions() {
+        Map<String, Integer> sessions = new HashMap<>();
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            if (user.getName() != null && user.hasSessions()) {
+                sessions.put(user.getName(), user.getSessions().size());
+            }
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,50 @@
+package com.web.backend.scheduler;
+
+import java.util.List;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.service.UserService;
+import com.web.backend.service.util.OfflineDebounceWheel;
+import com.web.backend.service.util.SessionRegistry;
+import com.web.backend.service.util.WebSocketRoutingService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes offline, in one batch per tick, the users whose offline debounce
+ * elapsed without a reconnect on any node.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j(topic = "OFFLINE-DEBOUNCE")
+public class OfflineDebounceScheduler {
+
+    private final OfflineDebounceWheel offlineDebounceWheel;
+    private final SessionRegistry sessionRegistry;
+    private final WebSocketRoutingService webSocketRoutingService;
+    private final UserService userService;
+
+    @Scheduled(fixedDelayString = "${app.presence.offline-debounce.tick-ms:500}")
+    public void drainExpired() {
+        List<String> expired = offlineDebounceWheel.advance();
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            // The script already dropped the routes; a user who reconnects after it ran
+            // is left out of the announcement and the database write
+            List<String> offline = sessionRegistry.findOffline(sessionRegistry.clearIfOffline(expired));
+            if (!offline.isEmpty()) {
+                webSocketRoutingService.announceOffline(offline);
+                userService.setUsersOffline(offline);
+            }
+            log.info("Offline debounce: {} users disconnected completely, {} reconnected elsewhere",
+                    offline.size(), expired.size() - offline.size());
+        } catch (Exception e) {
+            log.error("Error during offline debounce of {} users", expired.size(), e);
+        }
+    }
+}
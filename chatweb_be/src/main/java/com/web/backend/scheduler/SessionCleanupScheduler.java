@@ -1,54 +1,170 @@
 package com.web.backend.scheduler;
 
 import com.web.backend.service.UserService;
+import com.web.backend.service.util.WebSocketRoutingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.time.Duration;
 
+/**
+ * Sweeps users whose heartbeat stopped without a disconnect, a batch at a time:
+ * one script clears a batch from the presence keys and the per-node session
+ * hashes of {@code SessionRegistry}, then the batch is marked
+ * offline with one UPDATE and one friends query. The lock is renewed between
+ * batches and the sweep stops as soon as it is lost.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j(topic = "SESSION-CLEANUP")
 public class SessionCleanupScheduler {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final UserService userService;
+    private final WebSocketRoutingService webSocketRoutingService;
     private static final String ONLINE_USERS_KEY = "online_users";
     private static final String ONLINE_USERS_COUNT_KEY = "online_users_count";
+    private static final String NODE_SESSIONS_STRING = "presence:node:";
+    private static final String NODES_STRING = "presence:nodes";
     private static final long TIMEOUT_MS = 3L * 60 * 1000;
+    private static final int BATCH_SIZE = 500;
 
     private static final String LOCK_KEY = "lock:session_cleanup";
+    private static final Duration LOCK_TTL = Duration.ofSeconds(20);
+
+    /**
+     * KEYS: online zset, online count hash, nodes set.
+     * ARGV: cutoff, node hash prefix, then (username, zset member) per user.
+     * Users whose heartbeat was refreshed since they were read are left alone.
+     * The swept users are dropped from every node hash as well, so a later
+     * reclaim of one of those nodes does not subtract their sessions again.
+     */
+    private static final byte[] CLEANUP_SCRIPT = """
+            local nodes = redis.call('SMEMBERS', KEYS[3])
+            local removed = {}
+            for i = 3, #ARGV, 2 do
+                local score = redis.call('ZSCORE', KEYS[1], ARGV[i + 1])
+                if score and tonumber(score) <= tonumber(ARGV[1]) then
+                    redis.call('ZREM', KEYS[1], ARGV[i + 1])
+                    redis.call('HDEL', KEYS[2], ARGV[i])
+                    for _, node in ipairs(nodes) do
+                        redis.call('HDEL', ARGV[2] .. node, ARGV[i])
+                    end
+                    table.insert(removed, ARGV[i])
+                end
+            end
+            return removed
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: lock. ARGV: token, ttl ms.
+     */
+    private static final byte[] RENEW_LOCK_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: lock. ARGV: token.
+     */
+    private static final byte[] RELEASE_LOCK_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
 
     @Scheduled(fixedRate = 30 * 1000)
     public void cleanupZombieSessions() {
-        Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "locked", Duration.ofSeconds(20));
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL);
 
         if (Boolean.TRUE.equals(locked)) {
             try {
                 long timeoutLimit = System.currentTimeMillis() - TIMEOUT_MS;
+                int total = 0;
+                while (true) {
+                    Set<Object> zombieUsers = redisTemplate.opsForZSet()
+                            .rangeByScore(ONLINE_USERS_KEY, 0, timeoutLimit, 0, BATCH_SIZE);
+                    if (zombieUsers == null || zombieUsers.isEmpty()) {
+                        break;
+                    }
+                    List<String> removed = cleanupBatch(zombieUsers, timeoutLimit);
+                    webSocketRoutingService.removeRoutes(removed);
+                    userService.setUsersOffline(removed);
+                    total += removed.size();
 
-                Set<Object> zombieUsers = redisTemplate.opsForZSet().rangeByScore(ONLINE_USERS_KEY, 0, timeoutLimit);
-
-                if (zombieUsers != null && !zombieUsers.isEmpty()) {
-                    log.info("Found {} zombie sessions. Cleaning up...", zombieUsers.size());
-                    for (Object userObj : zombieUsers) {
-                        String username = (String) userObj;
-                        redisTemplate.opsForZSet().remove(ONLINE_USERS_KEY, username);
-                        redisTemplate.opsForHash().delete(ONLINE_USERS_COUNT_KEY, username);
-                        redisTemplate.delete("ws:routing:" + username);
-                        userService.setUserOnlineStatus(username, false);
-                        log.info("Cleaned up zombie session for user: {}", username);
+                    if (zombieUsers.size() < BATCH_SIZE || !renewLock(token)) {
+                        break;
                     }
                 }
+                if (total > 0) {
+                    log.info("Cleaned up {} zombie sessions", total);
+                }
+            } catch (Exception e) {
+                log.error("Zombie session cleanup failed: {}", e.getMessage(), e);
             } finally {
-                redisTemplate.delete(LOCK_KEY);
+                releaseLock(token);
             }
         } else {
             log.debug("Cleanup job is already being executed by another server node");
         }
     }
+
+    private List<String> cleanupBatch(Set<Object> zombieUsers, long timeoutLimit) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        List<byte[]> keysAndArgs = new ArrayList<>();
+        keysAndArgs.add(bytes(ONLINE_USERS_KEY));
+        keysAndArgs.add(bytes(ONLINE_USERS_COUNT_KEY));
+        keysAndArgs.add(bytes(NODES_STRING));
+        keysAndArgs.add(bytes(String.valueOf(timeoutLimit)));
+        keysAndArgs.add(bytes(NODE_SESSIONS_STRING));
+        for (Object userObj : zombieUsers) {
+            String username = (String) userObj;
+            keysAndArgs.add(bytes(username));
+            keysAndArgs.add(valueSerializer.serialize(username));
+        }
+
+        List<Object> removed = redisTemplate.execute((RedisCallback<List<Object>>) connection -> connection
+                .scriptingCommands().eval(CLEANUP_SCRIPT, ReturnType.MULTI, 3, keysAndArgs.toArray(byte[][]::new)));
+        List<String> usernames = new ArrayList<>();
+        if (removed != null) {
+            for (Object username : removed) {
+                usernames.add(new String((byte[]) username, StandardCharsets.UTF_8));
+            }
+        }
+        return usernames;
+    }
+
+    private boolean renewLock(String token) {
+        Long renewed = stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(RENEW_LOCK_SCRIPT, ReturnType.INTEGER, 1, bytes(LOCK_KEY), bytes(token),
+                        bytes(String.valueOf(LOCK_TTL.toMillis()))));
+        return renewed != null && renewed == 1L;
+    }
+
+    private void releaseLock(String token) {
+        stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(RELEASE_LOCK_SCRIPT, ReturnType.INTEGER, 1, bytes(LOCK_KEY), bytes(token)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,207 @@
+package com.web.backend.scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.projection.RecipientUnreadCountProjection;
+import com.web.backend.service.util.UnreadCounterService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Repairs unread counters that drifted from Mongo, a batch of recipients at a
+ * time. Mongo lags the counters while messages are still in the write-behind
+ * flow, so a difference is only repaired once two passes in a row observed the
+ * same values on both sides; the repair is a compare-and-set, so increments that
+ * land meanwhile are kept. The differences seen by a pass are kept in Redis next
+ * to the lock, so the next pass can confirm them whichever node runs it.
+ */
+@Component
+@Slf4j(topic = "UNREAD-COUNTER-RECONCILER")
+public class UnreadCounterReconciler {
+
+    private static final String LOCK_KEY = "lock:unread_reconcile";
+    private static final String SUSPECTS_KEY = "unread_reconcile:suspects";
+    private static final char FIELD_SEPARATOR = '\0';
+
+    private record Observation(long cached, long stored) {
+
+        String encode() {
+            return cached + ":" + stored;
+        }
+
+        static Observation decode(String value) {
+            int separator = value.indexOf(':');
+            return new Observation(Long.parseLong(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        }
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final MessageRepository messageRepository;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration lockTtl;
+    private final Duration suspectsTtl;
+
+    private final Counter checked;
+    private final Counter suspected;
+    private final Counter repaired;
+    private final DistributionSummary driftSize;
+
+    public UnreadCounterReconciler(StringRedisTemplate stringRedisTemplate,
+            UnreadCounterService unreadCounterService,
+            MessageRepository messageRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.unread.reconcile.enabled:true}") boolean enabled,
+            @Value("${app.chat.unread.reconcile.batch-size:200}") int batchSize,
+            @Value("${app.chat.unread.reconcile.lock-ttl:4m}") Duration lockTtl,
+            @Value("${app.chat.unread.reconcile.interval-ms:300000}") long intervalMs) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.messageRepository = messageRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.lockTtl = lockTtl;
+        // Outlives a missed pass; older observations are not worth confirming
+        this.suspectsTtl = Duration.ofMillis(intervalMs * 3);
+
+        this.checked = Counter.builder("chat.unread.reconcile.recipients")
+                .description("Recipients whose counters were compared with Mongo")
+                .register(meterRegistry);
+        this.suspected = Counter.builder("chat.unread.reconcile.drift").tag("result", "suspected")
+                .register(meterRegistry);
+        this.repaired = Counter.builder("chat.unread.reconcile.drift").tag("result", "repaired")
+                .register(meterRegistry);
+        this.driftSize = DistributionSummary.builder("chat.unread.reconcile.drift_size")
+                .description("Absolute difference of repaired counters")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.unread.reconcile.interval-ms:300000}", initialDelay = 60 * 1000)
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "locked", lockTtl);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("Unread reconciliation is already being executed by another server node");
+            return;
+        }
+
+        Map<String, Observation> suspects;
+        try {
+            suspects = loadSuspects();
+        } catch (Exception e) {
+            stringRedisTemplate.delete(LOCK_KEY);
+            log.error("Failed to load unread reconciliation suspects: {}", e.getMessage(), e);
+            return;
+        }
+
+        Map<String, Observation> seen = new HashMap<>();
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(UnreadCounterService.UNREAD_COUNTS_STRING + "*")
+                .count(batchSize)
+                .build();
+        try (Cursor<String> keys = stringRedisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (keys.hasNext()) {
+                batch.add(keys.next().substring(UnreadCounterService.UNREAD_COUNTS_STRING.length()));
+                if (batch.size() == batchSize) {
+                    reconcileBatch(batch, suspects, seen);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                reconcileBatch(batch, suspects, seen);
+            }
+            saveSuspects(seen);
+        } catch (Exception e) {
+            log.error("Unread reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            stringRedisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    // recipient + '\0' + sender -> drift seen by the previous pass
+    private Map<String, Observation> loadSuspects() {
+        Map<String, Observation> suspects = new HashMap<>();
+        stringRedisTemplate.<String, String>opsForHash().entries(SUSPECTS_KEY)
+                .forEach((field, value) -> suspects.put(field, Observation.decode(value)));
+        return suspects;
+    }
+
+    private void saveSuspects(Map<String, Observation> seen) {
+        stringRedisTemplate.delete(SUSPECTS_KEY);
+        if (seen.isEmpty()) {
+            return;
+        }
+        Map<String, String> encoded = new HashMap<>(seen.size());
+        seen.forEach((field, observation) -> encoded.put(field, observation.encode()));
+        stringRedisTemplate.opsForHash().putAll(SUSPECTS_KEY, encoded);
+        stringRedisTemplate.expire(SUSPECTS_KEY, suspectsTtl);
+    }
+
+    private void reconcileBatch(List<String> recipients, Map<String, Observation> suspects,
+            Map<String, Observation> seen) {
+        Map<String, Map<String, Long>> cached = unreadCounterService.readPrimed(recipients);
+        if (cached.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, Long>> stored = new HashMap<>();
+        for (RecipientUnreadCountProjection row : messageRepository
+                .countUnreadMessagesBySenderForRecipients(cached.keySet())) {
+            stored.computeIfAbsent(row.recipient(), k -> new HashMap<>()).put(row.sender(), row.count());
+        }
+
+        cached.forEach((recipient, cachedBySender) -> {
+            checked.increment();
+            Map<String, Long> storedBySender = stored.getOrDefault(recipient, Map.of());
+            Set<String> senders = new HashSet<>(cachedBySender.keySet());
+            senders.addAll(storedBySender.keySet());
+
+            for (String sender : senders) {
+                Observation observation = new Observation(cachedBySender.getOrDefault(sender, 0L),
+                        storedBySender.getOrDefault(sender, 0L));
+                if (observation.cached() == observation.stored()) {
+                    continue;
+                }
+                String key = recipient + FIELD_SEPARATOR + sender;
+                if (observation.equals(suspects.get(key))) {
+                    repair(recipient, sender, observation);
+                } else {
+                    suspected.increment();
+                    seen.put(key, observation);
+                }
+            }
+        });
+    }
+
+    private void repair(String recipient, String sender, Observation observation) {
+        if (unreadCounterService.compareAndSet(recipient, sender, observation.cached(), observation.stored())) {
+            repaired.increment();
+            driftSize.record(Math.abs(observation.cached() - observation.stored()));
+            log.info("Repaired unread counter of {} from {}: {} -> {}", recipient, sender, observation.cached(),
+                    observation.stored());
+        }
+    }
+}
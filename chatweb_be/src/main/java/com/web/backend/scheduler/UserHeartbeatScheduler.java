@@ -6,6 +6,9 @@ import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.web.backend.service.util.HeartbeatAccumulator;
+import com.web.backend.service.util.PresenceFanout;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,6 +19,8 @@ public class UserHeartbeatScheduler {
 
     private final SimpUserRegistry simpUserRegistry;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final HeartbeatAccumulator heartbeatAccumulator;
+    private final PresenceFanout presenceFanout;
     private static final String ONLINE_USERS_KEY = "online_users";
 
     @Scheduled(fixedRate = 60 * 1000) // Run every 1 minute
@@ -32,4 +37,14 @@ public class UserHeartbeatScheduler {
             log.error("Failed to update user heartbeats in Redis", e);
         }
     }
+
+    @Scheduled(fixedDelayString = "${app.presence.heartbeat.flush-interval-ms:5000}")
+    public void flushInboundActivity() {
+        heartbeatAccumulator.flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.fanout.flush-interval-ms:1000}")
+    public void flushPresenceFanout() {
+        presenceFanout.flush();
+    }
 }
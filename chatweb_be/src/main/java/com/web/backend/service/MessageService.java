@@ -4,8 +4,10 @@ import com.web.backend.controller.request.ChatMessageRequest;
 import com.web.backend.controller.request.MessageSystemRequest;
 import com.web.backend.controller.request.ReactionRequest;
 import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.controller.response.ConversationResponse;
 import com.web.backend.controller.response.CursorResponse;
 import com.web.backend.controller.response.MessageSystemResponse;
+import com.web.backend.controller.response.SyncResponse;
 import com.web.backend.controller.response.UnreadCountsResponse;
 
 public interface MessageService {
@@ -16,6 +18,10 @@ public interface MessageService {
     CursorResponse<ChatMessageResponse> findPrivateMessageWithCursor(String user1, String user2, String cursorStr,
             int size);
 
+    SyncResponse<ChatMessageResponse> findPrivateMessageChanges(String user1, String user2, Long since, int size);
+
+    CursorResponse<ConversationResponse> findConversations(String username, String cursorStr, int size);
+
     CursorResponse<MessageSystemResponse> findSystemMessageWithCursor(String cursorStr, int size);
 
     UnreadCountsResponse getUnreadMessageCounts(String recipientUsername);
@@ -5,12 +5,17 @@ import com.web.backend.controller.response.*;
 import com.web.backend.controller.response.AddressResponse;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserService {
 
     void setUserOnlineStatus(String username, boolean isOnline);
 
+    void setUsersOffline(Collection<String> usernames);
+
+    void setUsersOnline(Collection<String> usernames);
+
     boolean userExists(String username);
 
     UserResponse getMe(String username);
@@ -41,6 +41,7 @@ import com.web.backend.repository.RoleRepository;
 import com.web.backend.repository.UserRepository;
 import com.web.backend.service.AdminService;
 import com.web.backend.service.StorageService;
+import com.web.backend.service.util.SendAuthorizationCache;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -64,6 +65,8 @@ public class AdminServiceImpl implements AdminService {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    private final SendAuthorizationCache sendAuthorizationCache;
+
     private static final String ASC_STRING = "asc";
     private static final String ROLEID_CANNOT_BE_NULL_STRING = "RoleId cannot be null";
 
@@ -234,6 +237,7 @@ public class AdminServiceImpl implements AdminService {
         userEntity.setOnline(false);
 
         UserEntity savedUser = userRepository.save(userEntity);
+        sendAuthorizationCache.evictUser(username);
         log.info("Locked user: {}", username);
 
         return userMapper.toUserResponse(savedUser);
@@ -250,6 +254,7 @@ public class AdminServiceImpl implements AdminService {
         if (userEntity.getUserStatus() == UserStatus.LOCKED) {
             userEntity.setUserStatus(UserStatus.ACTIVE);
             UserEntity savedUser = userRepository.save(userEntity);
+            sendAuthorizationCache.evictUser(username);
             log.info("Unlocked user: {}", username);
 
             return userMapper.toUserResponse(savedUser);
@@ -326,6 +331,7 @@ public class AdminServiceImpl implements AdminService {
             userRepository.delete(Objects.requireNonNull(userEntity));
             log.info("Hard deleted user: {} (user had no message history) by {}", targetUsername, requesterUsername);
         }
+        sendAuthorizationCache.evictUser(targetUsername);
         log.info("Delete user");
     }
 
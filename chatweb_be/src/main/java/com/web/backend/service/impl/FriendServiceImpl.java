@@ -17,6 +17,7 @@ import com.web.backend.model.UserEntity;
 import com.web.backend.repository.FriendshipRepository;
 import com.web.backend.repository.UserRepository;
 import com.web.backend.service.FriendService;
+import com.web.backend.service.util.SendAuthorizationCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
@@ -47,6 +48,8 @@ public class FriendServiceImpl implements FriendService {
 
         private final UserMapper userMapper;
 
+        private final SendAuthorizationCache sendAuthorizationCache;
+
         private static final String FRIENDS_STRING = "friends:";
 
         private static final String DESC_STRING = "desc";
@@ -138,6 +141,7 @@ public class FriendServiceImpl implements FriendService {
 
                 friendship.setStatus(FriendshipStatus.ACCEPTED);
                 friendshipRepository.save(friendship);
+                sendAuthorizationCache.evictFriendship(acceptorUsername, requesterUsername);
 
                 redisTemplate.opsForSet().add(FRIENDS_STRING + acceptorUsername, requesterUsername);
                 redisTemplate.opsForSet().add(FRIENDS_STRING + requesterUsername, acceptorUsername);
@@ -237,6 +241,7 @@ public class FriendServiceImpl implements FriendService {
                 redisTemplate.opsForSet().remove(FRIENDS_STRING + targetUsername, currentUsername);
 
                 friendshipRepository.delete(friendship);
+                sendAuthorizationCache.evictFriendship(currentUsername, targetUsername);
 
                 if (isAccepted) {
                         eventPublisher.publishEvent(FriendPayload.builder()
@@ -283,6 +288,7 @@ public class FriendServiceImpl implements FriendService {
                 friendship.setStatus(FriendshipStatus.BLOCKED);
 
                 friendshipRepository.save(friendship);
+                sendAuthorizationCache.evictFriendship(blockerUsername, targetUsername);
 
                 redisTemplate.opsForSet().remove(FRIENDS_STRING + blockerUsername, targetUsername);
                 redisTemplate.opsForSet().remove(FRIENDS_STRING + targetUsername, blockerUsername);
@@ -6,22 +6,19 @@ import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import org.bson.types.ObjectId;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.redis.core.RedisTemplate;
 import com.web.backend.kafka.producer.ChatProducer;
 import org.springframework.stereotype.Service;
 import org.springframework.data.mongodb.core.query.Query;
@@ -38,28 +35,34 @@ import com.web.backend.controller.request.MessageSystemRequest;
 import com.web.backend.controller.request.ReactionRequest;
 import com.web.backend.controller.request.RevokeMessageRequest;
 import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.controller.response.ConversationResponse;
 import com.web.backend.controller.response.CursorResponse;
 import com.web.backend.controller.response.MessageSystemResponse;
+import com.web.backend.controller.response.SyncResponse;
 import com.web.backend.controller.response.UnreadCountsResponse;
 import com.web.backend.exception.custom.AccessForbiddenException;
 import com.web.backend.exception.custom.ResourceNotFoundException;
 import com.web.backend.exception.custom.SystemOverloadException;
 import com.web.backend.mapper.MessageMapper;
 import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
 import com.web.backend.model.SystemMessage;
-import com.web.backend.model.UserEntity;
+import com.web.backend.repository.ConversationRepository;
 import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.ReadWatermarkRepository;
 import com.web.backend.repository.SystemMessageRepository;
 import com.web.backend.repository.UserRepository;
-import com.web.backend.repository.projection.UnreadCountProjection;
 import com.web.backend.service.FriendService;
 import com.web.backend.service.MessageService;
+import com.web.backend.service.util.ConversationWindowCache;
+import com.web.backend.service.util.CursorCodec;
+import com.web.backend.service.util.RecentMessageCache;
+import com.web.backend.service.util.SendAuthorizationCache;
+import com.web.backend.service.util.UnreadCounterService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.web.backend.exception.WebSocketErrorHandler;
-import java.util.Set;
-import java.util.function.Consumer;
 
 @Slf4j(topic = "MESSAGE-SERVICE")
 @Service
@@ -68,14 +71,16 @@ public class MessageServiceImpl implements MessageService {
 
     private final MessageRepository messageRepository;
 
+    private final ConversationRepository conversationRepository;
+
+    private final ReadWatermarkRepository readWatermarkRepository;
+
     private final UserRepository userRepository;
 
     private final SystemMessageRepository systemMessageRepository;
 
     private final FriendService friendService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
-
     private final MongoTemplate mongoTemplate;
 
     private final MessageMapper messageMapper;
@@ -84,16 +89,35 @@ public class MessageServiceImpl implements MessageService {
 
     private final WebSocketErrorHandler webSocketErrorHandler;
 
+    private final SendAuthorizationCache sendAuthorizationCache;
+
+    private final RecentMessageCache recentMessageCache;
+
+    private final ConversationWindowCache conversationWindowCache;
+
+    private final UnreadCounterService unreadCounterService;
+
     private static final String CONVERSATIONID_STRING = "conversationId";
 
     private static final String ID_STRING = "id";
     private static final String TIMESTAMP_STRING = "timestamp";
+    private static final String CHANGE_SEQ_STRING = "changeSeq";
+    private static final String LAST_TIMESTAMP_STRING = "lastTimestamp";
 
-    private static final String CHAT_RECENT_HASH_STRING = "chat:recent:hash:";
-    private static final String CHAT_RECENT_ZSET_STRING = "chat:recent:zset:";
-    private static final String UNREAD_COUNTS_STRING = "unread_counts:";
 
     private static final String REACTIONS_STRING = "reactions.";
+    private static final String REVISION_STRING = "revision";
+    private static final String IS_DELETED_STRING = "isDeleted";
+
+    // Keyset order: newest first, ties on timestamp broken by id (both backed by history_idx)
+    private static final Sort HISTORY_SORT = Sort.by(Sort.Direction.DESC, TIMESTAMP_STRING, ID_STRING);
+    // Most recently active first (backed by inbox_idx)
+    private static final Sort INBOX_SORT = Sort.by(Sort.Direction.DESC, LAST_TIMESTAMP_STRING, ID_STRING);
+    // Compared at the millisecond precision of Mongo and of the cursor, so a cached copy cannot sort differently
+    private static final Comparator<ChatMessage> HISTORY_ORDER = Comparator
+            .comparing((ChatMessage msg) -> msg.getTimestamp().truncatedTo(ChronoUnit.MILLIS))
+            .thenComparing(ChatMessage::getId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .reversed();
 
     private static final String ERROR_MSG_RECIPIENT_NOT_FOUND_STRING = "error.msg.recipient_not_found";
     private static final String ERROR_MSG_SEND_DELETED_STRING = "error.msg.send_deleted";
@@ -134,23 +158,27 @@ public class MessageServiceImpl implements MessageService {
     }
 
     private void validatePrivateMessageRequest(String sender, ChatMessageRequest request) {
-        UserEntity recipientEntity = userRepository.findByUsername(request.getRecipient())
-                .orElseThrow(
-                        () -> new ResourceNotFoundException(Translator.tolocale(ERROR_MSG_RECIPIENT_NOT_FOUND_STRING),
-                                request));
+        String recipient = Objects.requireNonNull(request.getRecipient());
+        UserStatus recipientStatus = sendAuthorizationCache.getRecipientStatus(recipient,
+                () -> userRepository.findUserStatusByUsername(recipient)
+                        .orElseThrow(() -> new ResourceNotFoundException(
+                                Translator.tolocale(ERROR_MSG_RECIPIENT_NOT_FOUND_STRING), request)));
 
-        if (recipientEntity.getUserStatus() == UserStatus.INACTIVE) {
+        if (recipientStatus == UserStatus.INACTIVE) {
             throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_SEND_DELETED_STRING), request);
         }
-        if (recipientEntity.getUserStatus() == UserStatus.LOCKED) {
+        if (recipientStatus == UserStatus.LOCKED) {
             throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_SEND_LOCKED_STRING), request);
         }
-        if (!friendService.isFriend(Objects.requireNonNull(sender),
-                Objects.requireNonNull(request.getRecipient()))) {
+        if (!isFriendCached(Objects.requireNonNull(sender), recipient)) {
             throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_NOT_FRIENDS_STRING), request);
         }
     }
 
+    private boolean isFriendCached(String user1, String user2) {
+        return sendAuthorizationCache.isFriend(user1, user2, () -> friendService.isFriend(user1, user2));
+    }
+
     private ChatMessage buildChatMessage(String sender, ChatMessageRequest request, String convId) {
         ChatMessage chatMsg = messageMapper.toEntity(request);
         chatMsg.setConversationId(convId);
@@ -158,9 +186,8 @@ public class MessageServiceImpl implements MessageService {
         chatMsg.setId(new ObjectId().toHexString());
         chatMsg.setStatus(MessageStatus.SENT);
         chatMsg.setLocalId(request.getLocalId());
-        if (chatMsg.getTimestamp() == null) {
-            chatMsg.setTimestamp(LocalDateTime.now(ZoneId.systemDefault()));
-        }
+        // Stored at Mongo's precision from the start, so Redis and Mongo copies agree with the cursor
+        chatMsg.setTimestamp(LocalDateTime.now(ZoneId.systemDefault()).truncatedTo(ChronoUnit.MILLIS));
         if (chatMsg.getContent() == null) {
             chatMsg.setContent("");
         }
@@ -191,14 +218,15 @@ public class MessageServiceImpl implements MessageService {
     @Override
     public void reactToMessage(String senderUsername, ReactionRequest request) {
 
-        if (!friendService.isFriend(Objects.requireNonNull(senderUsername),
+        if (!isFriendCached(Objects.requireNonNull(senderUsername),
                 Objects.requireNonNull(request.getRecipient()))) {
             throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_NOT_FRIENDS_STRING));
         }
 
         String convId = generateConversationId(senderUsername, request.getRecipient());
         Query query = new Query(
-                Criteria.where(ID_STRING).is(request.getMessageId()).and(CONVERSATIONID_STRING).is(convId));
+                Criteria.where(ID_STRING).is(request.getMessageId()).and(CONVERSATIONID_STRING).is(convId)
+                        .and(IS_DELETED_STRING).ne(true));
         Update update = new Update();
 
         String reactionField = REACTIONS_STRING + senderUsername;
@@ -207,20 +235,13 @@ public class MessageServiceImpl implements MessageService {
         } else {
             update.unset(reactionField);
         }
-        mongoTemplate.updateFirst(query, update, ChatMessage.class);
-
-        updateMessageInRedisCache(convId, request.getMessageId(), msg -> {
-            Map<String, String> reactions = msg.getReactions();
-            if (reactions == null) {
-                reactions = new HashMap<>();
-                msg.setReactions(reactions);
-            }
-            if (request.getReactionType() != null) {
-                reactions.put(senderUsername, request.getReactionType().toString());
-            } else {
-                reactions.remove(senderUsername);
-            }
-        });
+        update.inc(REVISION_STRING, 1);
+        ChatMessage reacted = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), ChatMessage.class);
+        conversationWindowCache.invalidate(convId);
+        if (reacted != null) {
+            patchRecentMessage(reacted);
+        }
 
         ChatMessage reactionMsg = new ChatMessage();
         reactionMsg.setId(request.getMessageId());
@@ -238,51 +259,108 @@ public class MessageServiceImpl implements MessageService {
     public CursorResponse<ChatMessageResponse> findPrivateMessageWithCursor(String user1, String user2,
             String cursorStr, int size) {
         String conversationId = generateConversationId(user1, user2);
-        Pageable pageable = PageRequest.of(0, size + 1, Sort.by(Sort.Direction.DESC, TIMESTAMP_STRING));
+        Pageable pageable = PageRequest.of(0, size + 1, HISTORY_SORT);
 
         if (cursorStr == null || cursorStr.isEmpty()) {
-            List<ChatMessage> cachedMessages = fetchMessagesFromRedisCache(conversationId, 0, size);
-            if (cachedMessages.size() >= size + 1) {
-                cachedMessages.sort(Comparator.comparing(ChatMessage::getTimestamp).reversed());
-                log.info("Fetching private messages (Redis-First Cache Hit)");
-                return buildCursorResponse(cachedMessages, size);
-            }
+            List<ChatMessage> firstPage = conversationWindowCache.firstPage(conversationId, size + 1,
+                    () -> recentMessageCache.firstPage(conversationId, size + 1,
+                            () -> fetchFirstPageFromDatabaseAndMerge(conversationId, size, pageable)));
+            firstPage.sort(HISTORY_ORDER);
+            log.info("Fetching private messages (first page)");
+            return buildCursorResponse(firstPage, size);
         }
 
-        List<ChatMessage> finalMessages = fetchMessagesFromDatabaseAndMerge(conversationId, cursorStr, size, pageable);
-        log.info("Fetching private messages (DB Fallback)");
-        return buildCursorResponse(finalMessages, size);
+        CursorCodec.Cursor cursor = CursorCodec.decode(cursorStr);
+        List<ChatMessage> olderMessages = new ArrayList<>(messageRepository.findByConversationIdBefore(conversationId,
+                cursor.localTimestamp(), cursor.id(), pageable));
+        log.info("Fetching private messages (DB)");
+        return buildCursorResponse(olderMessages, size);
     }
 
-    private List<ChatMessage> fetchMessagesFromRedisCache(String conversationId, long start, long end) {
-        String hashKey = CHAT_RECENT_HASH_STRING + conversationId;
-        String zsetKey = CHAT_RECENT_ZSET_STRING + conversationId;
-        Set<Object> messageIds = redisTemplate.opsForZSet().reverseRange(zsetKey, start, end);
+    @Override
+    public SyncResponse<ChatMessageResponse> findPrivateMessageChanges(String user1, String user2, Long since,
+            int size) {
+        String conversationId = generateConversationId(user1, user2);
+        long committed = messageRepository.findCommittedChangeSeq(conversationId);
 
-        if (messageIds == null || messageIds.isEmpty()) {
-            return new ArrayList<>();
+        // Without "since" the caller only wants a starting point, taken before it loads history
+        if (since == null || since >= committed) {
+            return new SyncResponse<>(List.of(), since == null ? committed : since, false);
         }
 
-        List<Object> redisObjects = redisTemplate.opsForHash().multiGet(hashKey, messageIds);
-        List<ChatMessage> messages = new ArrayList<>();
-        for (Object obj : redisObjects) {
-            if (obj != null) {
-                messages.add((ChatMessage) obj);
-            }
+        Pageable pageable = PageRequest.of(0, size + 1, Sort.by(Sort.Direction.ASC, CHANGE_SEQ_STRING));
+        List<ChatMessage> changes = messageRepository.findChangesBetween(conversationId, since, committed, pageable);
+        boolean hasMore = changes.size() > size;
+        if (hasMore) {
+            changes = changes.subList(0, size);
         }
-        return messages;
+        long nextSeq = hasMore ? changes.get(changes.size() - 1).getChangeSeq() : committed;
+        log.info("Syncing {} changes of {} after {}", changes.size(), conversationId, since);
+
+        return new SyncResponse<>(changes.stream().map(messageMapper::toResponse).toList(), nextSeq, hasMore);
     }
 
-    private List<ChatMessage> fetchMessagesFromDatabaseAndMerge(String conversationId, String cursorStr, int size,
-            Pageable pageable) {
-        if (cursorStr != null && !cursorStr.isEmpty()) {
-            LocalDateTime cursorTime = LocalDateTime.parse(cursorStr);
-            return new ArrayList<>(
-                    messageRepository.findByConversationIdAndTimestampBefore(conversationId, cursorTime, pageable));
+    @Override
+    public CursorResponse<ConversationResponse> findConversations(String username, String cursorStr, int size) {
+        Pageable pageable = PageRequest.of(0, size + 1, INBOX_SORT);
+        List<Conversation> conversations;
+
+        if (cursorStr == null || cursorStr.isEmpty()) {
+            conversations = new ArrayList<>(conversationRepository.findInbox(username, pageable));
+        } else {
+            CursorCodec.KeyCursor cursor = CursorCodec.decodeKey(cursorStr);
+            conversations = new ArrayList<>(conversationRepository.findInboxBefore(username,
+                    cursor.localTimestamp(), cursor.key(), pageable));
         }
 
+        boolean hasMore = false;
+        if (conversations.size() > size) {
+            hasMore = true;
+            conversations.remove(conversations.size() - 1);
+        }
+
+        String nextCursor = null;
+        if (!conversations.isEmpty()) {
+            Conversation last = conversations.get(conversations.size() - 1);
+            nextCursor = CursorCodec.encode(last.getLastTimestamp(), last.getId());
+        }
+
+        // One owner for unread state: the inbox shows the same counters as /unread-counts
+        Map<String, Long> unreadBySender = conversations.isEmpty() ? Map.of()
+                : unreadCounterService.getCounts(username);
+        List<ConversationResponse> responseList = conversations.stream()
+                .map(conversation -> toConversationResponse(conversation, username, unreadBySender))
+                .toList();
+
+        log.info("Fetching inbox for user");
+        return new CursorResponse<>(responseList, nextCursor, hasMore);
+    }
+
+    private ConversationResponse toConversationResponse(Conversation conversation, String username,
+            Map<String, Long> unreadBySender) {
+        String peer = conversation.getParticipants() == null ? null
+                : conversation.getParticipants().stream()
+                        .filter(participant -> !participant.equals(username))
+                        .findFirst()
+                        .orElse(username);
+        long unread = peer == null ? 0 : unreadBySender.getOrDefault(peer, 0L);
+
+        return ConversationResponse.builder()
+                .conversationId(conversation.getId())
+                .peer(peer)
+                .lastMessageId(conversation.getLastMessageId())
+                .lastSender(conversation.getLastSender())
+                .lastContent(conversation.getLastContent())
+                .lastContentType(conversation.getLastContentType())
+                .lastDeleted(conversation.isLastDeleted())
+                .lastTimestamp(conversation.getLastTimestamp())
+                .unreadCount(Math.max(unread, 0))
+                .build();
+    }
+
+    private List<ChatMessage> fetchFirstPageFromDatabaseAndMerge(String conversationId, int size, Pageable pageable) {
         List<ChatMessage> dbMessages = messageRepository.findByConversationId(conversationId, pageable);
-        List<ChatMessage> redisMessages = fetchMessagesFromRedisCache(conversationId, 0, -1);
+        List<ChatMessage> redisMessages = recentMessageCache.readWindow(conversationId);
 
         Map<String, ChatMessage> uniqueMessagesMap = new LinkedHashMap<>();
         for (ChatMessage msg : redisMessages) {
@@ -293,7 +371,7 @@ public class MessageServiceImpl implements MessageService {
         }
 
         return uniqueMessagesMap.values().stream()
-                .sorted(Comparator.comparing(ChatMessage::getTimestamp).reversed())
+                .sorted(HISTORY_ORDER)
                 .limit(size + 1L)
                 .toList();
     }
@@ -312,23 +390,14 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     public void editMessage(String senderUsername, EditMessageRequest request) {
-        ChatMessage editMsg = messageRepository.findById(Objects.requireNonNull(request.getMessageId()))
-                .orElseThrow(
-                        () -> new ResourceNotFoundException(Translator.tolocale(ERROR_MSG_NOT_FOUND_STRING)));
-
-        if (!editMsg.getSender().equals(senderUsername)) {
-            throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_EDIT_FORBIDDEN_STRING));
+        String messageId = Objects.requireNonNull(request.getMessageId());
+        ChatMessage editMsg = messageRepository.editContent(messageId, senderUsername, request.getNewContent());
+        if (editMsg == null) {
+            throw rejectedMutation(messageId, ERROR_MSG_EDIT_FORBIDDEN_STRING);
         }
 
-        editMsg.setContent(request.getNewContent());
-        editMsg.setEdited(true);
-
-        messageRepository.save(editMsg);
-
-        updateMessageInRedisCache(editMsg.getConversationId(), editMsg.getId(), msg -> {
-            msg.setContent(request.getNewContent());
-            msg.setEdited(true);
-        });
+        conversationWindowCache.invalidate(editMsg.getConversationId());
+        patchRecentMessage(editMsg);
 
         chatProducer.sendEditMessage(editMsg);
 
@@ -336,46 +405,39 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     public void revokeMessage(String senderUsername, RevokeMessageRequest request) {
-        ChatMessage revokeMsg = messageRepository.findById(Objects.requireNonNull(request.getMessageId()))
-                .orElseThrow(
-                        () -> new ResourceNotFoundException(Translator.tolocale(ERROR_MSG_NOT_FOUND_STRING)));
-
-        if (!revokeMsg.getSender().equals(senderUsername)) {
-            throw new AccessForbiddenException(Translator.tolocale(ERROR_MSG_DELETE_FORBIDDEN_STRING));
+        String messageId = Objects.requireNonNull(request.getMessageId());
+        ChatMessage revokeMsg = messageRepository.revoke(messageId, senderUsername);
+        if (revokeMsg == null) {
+            throw rejectedMutation(messageId, ERROR_MSG_DELETE_FORBIDDEN_STRING);
         }
 
-        revokeMsg.setContent("");
-        revokeMsg.setFileUrl(null);
-        revokeMsg.setFileName(null);
-        revokeMsg.setFileSize(null);
-        revokeMsg.setReactions(null);
-        revokeMsg.setDeleted(true);
-
-        messageRepository.save(revokeMsg);
-
-        updateMessageInRedisCache(revokeMsg.getConversationId(), revokeMsg.getId(), msg -> {
-            msg.setContent("");
-            msg.setFileUrl(null);
-            msg.setFileName(null);
-            msg.setFileSize(null);
-            msg.setReactions(null);
-            msg.setDeleted(true);
-        });
+        conversationWindowCache.invalidate(revokeMsg.getConversationId());
+        patchRecentMessage(revokeMsg);
 
         chatProducer.sendRevokeMessage(revokeMsg);
     }
 
+    /**
+     * Explains why a conditional edit or revoke matched nothing. Only read on that path.
+     */
+    private RuntimeException rejectedMutation(String messageId, String forbiddenKey) {
+        return messageRepository.findById(messageId)
+                .filter(msg -> !msg.isDeleted())
+                .<RuntimeException>map(msg -> new AccessForbiddenException(Translator.tolocale(forbiddenKey)))
+                .orElseGet(() -> new ResourceNotFoundException(Translator.tolocale(ERROR_MSG_NOT_FOUND_STRING)));
+    }
+
     @Override
     public CursorResponse<MessageSystemResponse> findSystemMessageWithCursor(String cursorStr, int size) {
 
-        Pageable pageable = PageRequest.of(0, size + 1, Sort.by(Sort.Direction.DESC, TIMESTAMP_STRING));
+        Pageable pageable = PageRequest.of(0, size + 1, HISTORY_SORT);
         List<SystemMessage> messages;
 
         if (cursorStr == null || cursorStr.isEmpty()) {
             messages = new ArrayList<>(systemMessageRepository.findInitialMessage(pageable));
         } else {
-            Instant cursorTime = Instant.parse(cursorStr);
-            messages = new ArrayList<>(systemMessageRepository.findMessage(cursorTime, pageable));
+            CursorCodec.Cursor cursor = CursorCodec.decode(cursorStr);
+            messages = new ArrayList<>(systemMessageRepository.findMessageBefore(cursor.timestamp(), cursor.id(), pageable));
         }
 
         boolean hasMore = false;
@@ -386,8 +448,8 @@ public class MessageServiceImpl implements MessageService {
 
         String nextCursor = null;
         if (!messages.isEmpty()) {
-            Instant lastMessageTime = messages.get(messages.size() - 1).getTimestamp();
-            nextCursor = lastMessageTime.toString();
+            SystemMessage lastMessage = messages.get(messages.size() - 1);
+            nextCursor = CursorCodec.encode(lastMessage.getTimestamp(), lastMessage.getId());
         }
 
         List<MessageSystemResponse> responseList = messages.stream()
@@ -400,51 +462,34 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     public UnreadCountsResponse getUnreadMessageCounts(String recipientUsername) {
-
-        String key = UNREAD_COUNTS_STRING + recipientUsername;
-
-        Map<Object, Object> redisCounts = redisTemplate.opsForHash().entries(key);
-
-        if (!redisCounts.isEmpty()) {
-            Map<String, Long> result = redisCounts.entrySet().stream()
-                    .collect(Collectors.toMap(
-                            e -> (String) e.getKey(),
-                            e -> Long.valueOf(e.getValue().toString())));
-            log.info("Fetching unread counts for user (Optimized) redis");
-            return UnreadCountsResponse.builder().unreadCounts(result).build();
-        }
-
-        List<UnreadCountProjection> dbResults = messageRepository.countUnreadMessagesBySender(recipientUsername);
-
-        Map<String, Long> resultMap = new HashMap<>();
-        Map<String, Object> redisMap = new HashMap<>();
-
-        for (UnreadCountProjection r : dbResults) {
-            resultMap.put(r.sender(), r.count());
-            redisMap.put(r.sender(), r.count());
-        }
-
-        if (!redisMap.isEmpty()) {
-            redisTemplate.opsForHash().putAll(key, redisMap);
-            redisTemplate.expire(key, 7, TimeUnit.DAYS);
-        }
-
-        log.info("Fetching unread counts for user (From DB)");
+        log.info("Fetching unread counts for user");
         return UnreadCountsResponse.builder()
-                .unreadCounts(resultMap)
+                .unreadCounts(unreadCounterService.getCounts(recipientUsername))
                 .build();
     }
 
+    /**
+     * Moves the reader's watermark to the newest message of the conversation and
+     * marks what is still unread below it with one update. Messages that are
+     * persisted later are stamped against the watermark by the write-behind flow.
+     */
     @Override
     public void markMessagesAsRead(String recipientUsername, String senderUsername) {
-        List<ChatMessage> messages = messageRepository.findUnreadMessagesFromSender(recipientUsername, senderUsername);
-        if (!messages.isEmpty()) {
-            messages.forEach(msg -> msg.setStatus(MessageStatus.READ));
-            messageRepository.saveAll(messages);
-        }
-        String key = UNREAD_COUNTS_STRING + recipientUsername;
-        redisTemplate.opsForHash().delete(key, senderUsername);
+        String conversationId = generateConversationId(recipientUsername, senderUsername);
+        ChatMessage newest = findNewestMessage(conversationId);
+
         ChatMessage statusMsg = new ChatMessage();
+        if (newest != null) {
+            readWatermarkRepository.advance(conversationId, recipientUsername, newest.getId(), newest.getTimestamp());
+            // Only touches messages still unread, so repeating it after a failure is cheap
+            long marked = messageRepository.markReadUpTo(recipientUsername, senderUsername, newest.getTimestamp());
+            log.debug("Marked {} messages of {} as read", marked, conversationId);
+            statusMsg.setId(newest.getId());
+            statusMsg.setTimestamp(newest.getTimestamp());
+        }
+        unreadCounterService.reset(recipientUsername, senderUsername);
+
+        statusMsg.setConversationId(conversationId);
         statusMsg.setMessageType(MessageType.STATUS);
         statusMsg.setStatus(MessageStatus.READ);
         statusMsg.setSender(senderUsername);
@@ -454,6 +499,19 @@ public class MessageServiceImpl implements MessageService {
 
     }
 
+    /**
+     * Newest message of a conversation, including ones still on their way to Mongo.
+     */
+    private ChatMessage findNewestMessage(String conversationId) {
+        Pageable pageable = PageRequest.of(0, 1, HISTORY_SORT);
+        List<ChatMessage> newest = new ArrayList<>(conversationWindowCache.firstPage(conversationId, 1,
+                () -> recentMessageCache.firstPage(conversationId, 1,
+                        () -> fetchFirstPageFromDatabaseAndMerge(conversationId, 0, pageable))));
+        newest.removeIf(msg -> msg.getId() == null || msg.getTimestamp() == null);
+        newest.sort(HISTORY_ORDER);
+        return newest.isEmpty() ? null : newest.get(0);
+    }
+
     private CursorResponse<ChatMessageResponse> buildCursorResponse(List<ChatMessage> messages, int size) {
 
         boolean hasMore = false;
@@ -464,8 +522,8 @@ public class MessageServiceImpl implements MessageService {
 
         String nextCursor = null;
         if (!messages.isEmpty()) {
-            LocalDateTime lastMessageTime = messages.get(messages.size() - 1).getTimestamp();
-            nextCursor = lastMessageTime.toString();
+            ChatMessage lastMessage = messages.get(messages.size() - 1);
+            nextCursor = CursorCodec.encode(lastMessage.getTimestamp(), lastMessage.getId());
         }
 
         List<ChatMessageResponse> responseList = messages.stream()
@@ -475,18 +533,11 @@ public class MessageServiceImpl implements MessageService {
         return new CursorResponse<>(responseList, nextCursor, hasMore);
     }
 
-    private void updateMessageInRedisCache(String conversationId, String messageId,
-            Consumer<ChatMessage> updateAction) {
+    private void patchRecentMessage(ChatMessage message) {
         try {
-            String hashKey = CHAT_RECENT_HASH_STRING + conversationId;
-            Object obj = redisTemplate.opsForHash().get(hashKey, messageId);
-            if (obj != null) {
-                ChatMessage msg = (ChatMessage) obj;
-                updateAction.accept(msg);
-                redisTemplate.opsForHash().put(hashKey, messageId, msg);
-            }
+            recentMessageCache.patch(message);
         } catch (Exception e) {
-            log.warn("Error updating Redis cache for message {}: {}", messageId, e.getMessage());
+            log.warn("Error updating Redis cache for message {}: {}", message.getId(), e.getMessage());
         }
     }
 }
@@ -3,7 +3,6 @@ package com.web.backend.service.impl;
 import com.web.backend.common.AuthProvider;
 import com.web.backend.common.OtpType;
 import com.web.backend.common.UserStatus;
-import com.web.backend.common.NotificationsType;
 import com.web.backend.config.localresolverconfig.Translator;
 import com.web.backend.controller.request.*;
 import com.web.backend.controller.response.*;
@@ -14,26 +13,27 @@ import com.web.backend.exception.custom.InvalidPasswordException;
 import com.web.backend.exception.custom.PasswordMismatchException;
 import com.web.backend.exception.custom.ResourceConflictException;
 import com.web.backend.exception.custom.ResourceNotFoundException;
-import com.web.backend.kafka.payload.FriendPayload;
 import com.web.backend.mapper.UserMapper;
 import com.web.backend.model.*;
 import com.web.backend.repository.MessageRepository;
 import com.web.backend.repository.UserRepository;
-import com.web.backend.repository.FriendshipRepository;
 import com.web.backend.service.StorageService;
 import com.web.backend.service.util.CuckooFilterService;
 import com.web.backend.service.util.EmailService;
+import com.web.backend.service.util.PresenceFanout;
+import com.web.backend.service.util.SendAuthorizationCache;
 import com.web.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.multipart.MultipartFile;
 import java.security.SecureRandom;
 import java.util.*;
@@ -60,9 +60,11 @@ public class UserServiceImpl implements UserService {
 
     private final CuckooFilterService cuckooFilterService;
 
-    private final FriendshipRepository friendshipRepository;
+    private final SendAuthorizationCache sendAuthorizationCache;
 
-    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+
+    private final PresenceFanout presenceFanout;
 
     private SecureRandom secureRandom = new SecureRandom();
 
@@ -78,7 +80,6 @@ public class UserServiceImpl implements UserService {
     private static final String AVATARS_STRING = "avatars";
     private static final String OTP_STRING = "otp:";
     private static final String COOLDOWN_RESEND_STRING = "cooldown:resend:";
-    private static final String QUEUE_NOTIFICATIONS_STRING = "/queue/notifications";
 
     private static final String ERROR_USER_NOT_FOUND_WITH_STRING = "error.user.not_found_with";
     private static final String ERROR_AUTH_INVALID_OTP_ATTEMPTS_STRING = "error.auth.invalid_otp_attempts";
@@ -329,6 +330,7 @@ public class UserServiceImpl implements UserService {
             userRepository.delete(Objects.requireNonNull(userEntity));
             log.info("Hard deleted user: {} (user had no message history)", username);
         }
+        sendAuthorizationCache.evictUser(username);
     }
 
     @Override
@@ -371,16 +373,39 @@ public class UserServiceImpl implements UserService {
         userRepository.updateOnlineStatus(username, isOnline);
         log.info("Set user online status");
 
-        List<String> friends = friendshipRepository.findAllFriendUsernamesByUsername(username);
+        presenceFanout.submit(username, isOnline);
+    }
+
+    /**
+     * Marks a batch of users offline with one UPDATE instead of one per user.
+     */
+    @Override
+    @Async
+    public void setUsersOffline(Collection<String> usernames) {
+        setUsersOnlineStatus(usernames, false);
+    }
+
+    /**
+     * Marks a batch of users online with one UPDATE instead of one per user.
+     */
+    @Override
+    @Async
+    public void setUsersOnline(Collection<String> usernames) {
+        setUsersOnlineStatus(usernames, true);
+    }
 
-        if (friends != null && !friends.isEmpty()) {
-            eventPublisher.publishEvent(FriendPayload.builder()
-                    .recipientUsernames(friends)
-                    .destination(QUEUE_NOTIFICATIONS_STRING)
-                    .recipientStatus(isOnline ? NotificationsType.USER_ONLINE : NotificationsType.USER_OFFLINE)
-                    .senderDisplayName(username)
-                    .build());
+    private void setUsersOnlineStatus(Collection<String> usernames, boolean isOnline) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        int updated = userRepository.updateOnlineStatusIn(usernames, isOnline);
+        Cache userCache = cacheManager.getCache(USER_DETAILS_STRING);
+        if (userCache != null) {
+            usernames.forEach(userCache::evict);
         }
+        log.info("Set {} users {}", updated, isOnline ? "online" : "offline");
+
+        presenceFanout.submitAll(usernames, isOnline);
     }
 
     @Override
@@ -0,0 +1,229 @@
+package com.web.backend.service.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-node heap copy of the newest messages of hot conversations, in front of
+ * {@link RecentMessageCache}. Windows hold at most the recent window size of
+ * messages and the cache is bounded by their approximate weight in bytes.
+ * <p>
+ * Kept current by the chat-messages records this node consumes: new messages
+ * are appended, read receipts applied, and edits, revokes and reactions drop
+ * the window. Records for conversations that are not cached are remembered for
+ * a short while, so a window loaded from a lagging Redis or Mongo copy is
+ * completed (or discarded) instead of missing them.
+ */
+@Service
+@Slf4j(topic = "CONVERSATION-WINDOW-CACHE")
+public class ConversationWindowCache {
+
+    private static final Comparator<ChatMessage> NEWEST_FIRST = Comparator
+            .comparing(ChatMessage::getTimestamp)
+            .thenComparing(ChatMessage::getId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .reversed();
+
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    private record Window(List<ChatMessage> messages, boolean complete) {
+
+        int weight() {
+            int weight = 0;
+            for (ChatMessage message : messages) {
+                weight += MESSAGE_OVERHEAD_BYTES + 2 * (message.getContent() == null ? 0 : message.getContent().length());
+            }
+            return Math.max(weight, 1);
+        }
+    }
+
+    /**
+     * Records seen while the conversation was not cached. Only touched inside a
+     * compute of {@link #windows} for the same key.
+     */
+    private static final class Pending {
+        private final List<ChatMessage> appended = new ArrayList<>();
+        private long invalidatedAt;
+    }
+
+    private final Cache<String, Window> windows;
+
+    private final Cache<String, Pending> pending;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final int windowSize;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ConversationWindowCache(RecentMessageCache recentMessageCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.window-cache.max-weight:32MB}") DataSize maxWeight,
+            @Value("${app.chat.window-cache.expire-after-access:10m}") Duration expireAfterAccess,
+            @Value("${app.chat.window-cache.pending-ttl:30s}") Duration pendingTtl) {
+        this.windowSize = recentMessageCache.getWindowSize();
+        this.windows = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((String conversationId, Window window) -> window.weight())
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+        this.pending = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(pendingTtl)
+                .build();
+
+        this.hits = Counter.builder("chat.window_cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.window_cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Returns the newest {@code limit} messages of a conversation, newest first,
+     * from heap when possible; otherwise from {@code loader}, whose result is kept.
+     */
+    public List<ChatMessage> firstPage(String conversationId, int limit, Supplier<List<ChatMessage>> loader) {
+        Window window = windows.getIfPresent(conversationId);
+        if (window != null && (window.messages().size() >= limit || window.complete())) {
+            hits.increment();
+            return new ArrayList<>(window.messages().subList(0, Math.min(limit, window.messages().size())));
+        }
+        misses.increment();
+
+        long readStartedAt = clock.incrementAndGet();
+        List<ChatMessage> loaded = loader.get();
+        store(conversationId, loaded, loaded.size() < limit, readStartedAt);
+        return new ArrayList<>(loaded);
+    }
+
+    /**
+     * Applies a batch of chat-messages records consumed by this node.
+     */
+    public void apply(List<ChatMessage> records) {
+        for (ChatMessage message : records) {
+            if (message == null || message.getConversationId() == null) {
+                continue;
+            }
+            MessageType type = message.getMessageType();
+            if (type == MessageType.REACTION || (type == MessageType.CHAT && (message.isEdited() || message.isDeleted()))) {
+                invalidate(message.getConversationId());
+            } else if (type == MessageType.CHAT && message.getId() != null && message.getTimestamp() != null) {
+                append(message);
+            } else if (type == MessageType.STATUS && message.getStatus() == MessageStatus.READ) {
+                markRead(message);
+            }
+        }
+    }
+
+    public void invalidate(String conversationId) {
+        windows.asMap().compute(conversationId, (key, existing) -> {
+            pending.get(key, k -> new Pending()).invalidatedAt = clock.incrementAndGet();
+            return null;
+        });
+    }
+
+    private void store(String conversationId, List<ChatMessage> loaded, boolean complete, long readStartedAt) {
+        windows.asMap().compute(conversationId, (key, existing) -> {
+            Pending seen = pending.getIfPresent(key);
+            if (seen != null && seen.invalidatedAt > readStartedAt) {
+                // Changed while it was being read; the loaded copy may be stale
+                return existing;
+            }
+            List<ChatMessage> messages = new ArrayList<>(loaded);
+            List<ChatMessage> newer = new ArrayList<>();
+            if (existing != null) {
+                newer.addAll(existing.messages());
+            }
+            if (seen != null) {
+                newer.addAll(seen.appended);
+            }
+            for (ChatMessage message : newer) {
+                if (!containsId(messages, message.getId())) {
+                    messages.add(message);
+                }
+            }
+            return trimmed(messages, complete);
+        });
+    }
+
+    private void append(ChatMessage message) {
+        windows.asMap().compute(message.getConversationId(), (key, existing) -> {
+            if (existing == null) {
+                Pending seen = pending.get(key, k -> new Pending());
+                if (!containsId(seen.appended, message.getId())) {
+                    seen.appended.add(message);
+                    if (seen.appended.size() > windowSize) {
+                        seen.appended.remove(0);
+                    }
+                }
+                return null;
+            }
+            if (containsId(existing.messages(), message.getId())) {
+                return existing;
+            }
+            List<ChatMessage> messages = new ArrayList<>(existing.messages());
+            messages.add(message);
+            return trimmed(messages, existing.complete());
+        });
+    }
+
+    /**
+     * Receipts carry the reader's watermark as their timestamp; older ones without it cover everything.
+     * The cached messages are shared with pages already handed out, so read ones
+     * are replaced by copies instead of being changed in place.
+     */
+    private void markRead(ChatMessage receipt) {
+        windows.asMap().computeIfPresent(receipt.getConversationId(), (key, existing) -> {
+            List<ChatMessage> messages = new ArrayList<>(existing.messages().size());
+            boolean changed = false;
+            for (ChatMessage message : existing.messages()) {
+                if (message.getStatus() == MessageStatus.SENT && Objects.equals(receipt.getSender(), message.getSender())
+                        && (receipt.getTimestamp() == null || !message.getTimestamp().isAfter(receipt.getTimestamp()))) {
+                    ChatMessage read = new ChatMessage();
+                    BeanUtils.copyProperties(message, read);
+                    read.setStatus(MessageStatus.READ);
+                    messages.add(read);
+                    changed = true;
+                } else {
+                    messages.add(message);
+                }
+            }
+            return changed ? new Window(List.copyOf(messages), existing.complete()) : existing;
+        });
+    }
+
+    private Window trimmed(List<ChatMessage> messages, boolean complete) {
+        messages.sort(NEWEST_FIRST);
+        if (messages.size() > windowSize) {
+            return new Window(List.copyOf(messages.subList(0, windowSize)), false);
+        }
+        return new Window(List.copyOf(messages), complete);
+    }
+
+    private static boolean containsId(List<ChatMessage> messages, String id) {
+        for (ChatMessage message : messages) {
+            if (id.equals(message.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
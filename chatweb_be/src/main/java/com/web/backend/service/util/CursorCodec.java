@@ -0,0 +1,74 @@
+package com.web.backend.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+import com.web.backend.config.localresolverconfig.Translator;
+import com.web.backend.exception.custom.InvalidDataException;
+
+/**
+ * Encodes history page cursors as an opaque, URL-safe token of the last
+ * message's (timestamp, id). The id breaks ties between messages sharing a
+ * timestamp, so the next page starts exactly after the last one returned.
+ * Collections keyed by plain strings use {@link #decodeKey}.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR_STRING = ":";
+    private static final String ERROR_MSG_INVALID_CURSOR_STRING = "error.msg.invalid_cursor";
+
+    public record Cursor(Instant timestamp, ObjectId id) {
+
+        public LocalDateTime localTimestamp() {
+            return LocalDateTime.ofInstant(timestamp, ZoneId.systemDefault());
+        }
+    }
+
+    public record KeyCursor(Instant timestamp, String key) {
+
+        public LocalDateTime localTimestamp() {
+            return LocalDateTime.ofInstant(timestamp, ZoneId.systemDefault());
+        }
+    }
+
+    private CursorCodec() {
+    }
+
+    public static String encode(LocalDateTime timestamp, String id) {
+        return encode(timestamp.atZone(ZoneId.systemDefault()).toInstant(), id);
+    }
+
+    public static String encode(Instant timestamp, String id) {
+        String raw = timestamp.toEpochMilli() + SEPARATOR_STRING + (id == null ? "" : id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String cursor) {
+        KeyCursor keyCursor = decodeKey(cursor);
+        try {
+            return new Cursor(keyCursor.timestamp(), new ObjectId(keyCursor.key()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException(Translator.tolocale(ERROR_MSG_INVALID_CURSOR_STRING), cursor);
+        }
+    }
+
+    public static KeyCursor decodeKey(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR_STRING);
+            long epochMillis = Long.parseLong(raw.substring(0, separator));
+            String key = raw.substring(separator + 1);
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("Cursor without key");
+            }
+            return new KeyCursor(Instant.ofEpochMilli(epochMillis), key);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidDataException(Translator.tolocale(ERROR_MSG_INVALID_CURSOR_STRING), cursor);
+        }
+    }
+}
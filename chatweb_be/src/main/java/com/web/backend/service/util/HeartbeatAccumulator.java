@@ -0,0 +1,85 @@
+package com.web.backend.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the last inbound activity of the users connected to this node and
+ * writes it to {@code online_users} in one ZADD per flush, instead of one round
+ * trip per inbound STOMP frame.
+ * <p>
+ * Flushes only refresh users that are still in the set ({@code XX}) and never
+ * move a score backwards ({@code GT}): adding users is left to the connect
+ * handler, so a buffered frame cannot bring back a user whose disconnect was
+ * already processed.
+ */
+@Service
+@Slf4j(topic = "HEARTBEAT-ACCUMULATOR")
+public class HeartbeatAccumulator {
+
+    private static final String ONLINE_USERS_KEY = "online_users";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final ConcurrentHashMap<String, Long> lastSeen = new ConcurrentHashMap<>();
+
+    private final Counter flushed;
+
+    public HeartbeatAccumulator(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.flushed = Counter.builder("presence.heartbeats.flushed")
+                .description("User heartbeats written to Redis by accumulated flushes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Remembers that {@code username} was active now. Called on every inbound frame.
+     */
+    public void record(String username) {
+        lastSeen.put(username, System.currentTimeMillis());
+    }
+
+    /**
+     * Writes the activity recorded since the last flush. On failure it is kept
+     * for the next one.
+     */
+    public void flush() {
+        if (lastSeen.isEmpty()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>(lastSeen);
+        // Keep entries that were refreshed after the copy for the next flush
+        batch.forEach(lastSeen::remove);
+
+        try {
+            @SuppressWarnings("unchecked")
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            Set<Tuple> tuples = new LinkedHashSet<>();
+            batch.forEach((username, seenAt) -> tuples.add(
+                    new DefaultTuple(valueSerializer.serialize(username), seenAt.doubleValue())));
+
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.zSetCommands()
+                    .zAdd(ONLINE_USERS_KEY.getBytes(StandardCharsets.UTF_8), tuples, ZAddArgs.ifExists().gt()));
+            flushed.increment(batch.size());
+        } catch (Exception e) {
+            batch.forEach((username, seenAt) -> lastSeen.merge(username, seenAt, Math::max));
+            log.error("Failed to flush {} user heartbeats to Redis", batch.size(), e);
+        }
+    }
+}
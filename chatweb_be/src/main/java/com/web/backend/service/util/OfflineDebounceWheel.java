@@ -0,0 +1,121 @@
+package com.web.backend.service.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hashed timing wheel holding the users whose last session on this node
+ * closed, until their offline debounce elapses.
+ * <p>
+ * The pending entry of each user is also indexed by username, so a reconnect
+ * cancels it in O(1); the slot keeps the cancelled entry until the wheel
+ * passes it and skips it there. {@link #advance} drains every slot the clock
+ * has passed since the last call and returns the users to take offline as
+ * one batch, so a mass disconnect costs one drain per tick instead of one
+ * task per user.
+ */
+@Service
+@Slf4j(topic = "OFFLINE-DEBOUNCE")
+public class OfflineDebounceWheel {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private static final class Timeout {
+
+        private final String username;
+
+        private final long deadlineTick;
+
+        private Timeout(String username, long deadlineTick) {
+            this.username = username;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMs;
+
+    private final long delayMs;
+
+    private final List<ConcurrentLinkedQueue<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    private final ConcurrentHashMap<String, Timeout> pending = new ConcurrentHashMap<>();
+
+    private long lastTick;
+
+    public OfflineDebounceWheel(@Value("${app.presence.offline-debounce.delay:5s}") Duration delay,
+            @Value("${app.presence.offline-debounce.tick-ms:500}") long tickMs,
+            MeterRegistry meterRegistry) {
+        this.tickMs = Math.max(1, tickMs);
+        this.delayMs = delay.toMillis();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.lastTick = System.currentTimeMillis() / this.tickMs;
+        Gauge.builder("presence.offline.pending", pending, ConcurrentHashMap::size)
+                .description("Users waiting for their offline debounce on this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts (or restarts) the offline debounce of {@code username}.
+     */
+    public void schedule(String username) {
+        long deadlineTick = Math.ceilDiv(System.currentTimeMillis() + delayMs, tickMs);
+        Timeout timeout = new Timeout(username, deadlineTick);
+        pending.put(username, timeout);
+        slot(deadlineTick).add(timeout);
+    }
+
+    /**
+     * Cancels the pending offline debounce of {@code username}, if any.
+     *
+     * @return whether one was pending
+     */
+    public boolean cancel(String username) {
+        return pending.remove(username) != null;
+    }
+
+    /**
+     * Moves the wheel up to the current time.
+     *
+     * @return the users whose debounce elapsed since the last call
+     */
+    public synchronized List<String> advance() {
+        long currentTick = System.currentTimeMillis() / tickMs;
+        List<String> expired = new ArrayList<>();
+        // Slots are only revisited after a full turn, so a long pause drains each slot once
+        long firstTick = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            ConcurrentLinkedQueue<Timeout> slot = slot(tick);
+            List<Timeout> later = new ArrayList<>();
+            Timeout timeout;
+            while ((timeout = slot.poll()) != null) {
+                if (timeout.deadlineTick > currentTick) {
+                    later.add(timeout);
+                } else if (pending.remove(timeout.username, timeout)) {
+                    expired.add(timeout.username);
+                }
+            }
+            slot.addAll(later);
+        }
+        lastTick = Math.max(lastTick, currentTick);
+        if (!expired.isEmpty()) {
+            log.debug("Offline debounce elapsed for {} users", expired.size());
+        }
+        return expired;
+    }
+
+    private ConcurrentLinkedQueue<Timeout> slot(long tick) {
+        return wheel.get((int) Math.floorMod(tick, (long) WHEEL_SIZE));
+    }
+}
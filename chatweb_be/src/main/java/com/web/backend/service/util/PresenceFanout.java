@@ -0,0 +1,166 @@
+package com.web.backend.service.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.web.backend.common.NotificationsType;
+import com.web.backend.kafka.payload.FriendPayload;
+import com.web.backend.repository.FriendshipRepository;
+import com.web.backend.repository.projection.FriendPairProjection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces presence changes before they are announced to friends.
+ * <p>
+ * A change waits {@code window} after the first one for its user; later
+ * changes in the window only replace the state, so a reconnect or network
+ * switch is announced once with its final state, or not at all when the
+ * window ends in the state it started from. Only the window itself is used
+ * to decide that: other nodes (zombie sweep, lease reclaim, their own
+ * debounce) announce this user too, so a per-node memory of what friends
+ * were last told would go stale. Each flush loads the friends of
+ * every due user with one query and keeps only those in {@code online_users}
+ * (one ZMSCORE), so offline friends cost no routing lookup downstream.
+ */
+@Service
+@Slf4j(topic = "PRESENCE-FANOUT")
+public class PresenceFanout {
+
+    private static final String ONLINE_USERS_KEY = "online_users";
+    private static final String QUEUE_NOTIFICATIONS_STRING = "/queue/notifications";
+
+    /**
+     * {@code from} is the state before the first change of the window.
+     */
+    private record Pending(boolean from, boolean online, long since) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final FriendshipRepository friendshipRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final long windowMs;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+
+    public PresenceFanout(RedisTemplate<String, Object> redisTemplate,
+            FriendshipRepository friendshipRepository,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${app.presence.fanout.window:3s}") Duration window) {
+        this.redisTemplate = redisTemplate;
+        this.friendshipRepository = friendshipRepository;
+        this.eventPublisher = eventPublisher;
+        this.windowMs = window.toMillis();
+        this.coalesced = Counter.builder("presence.fanout.coalesced")
+                .description("Presence windows dropped because they ended in the state they started from")
+                .register(meterRegistry);
+    }
+
+    public void submit(String username, boolean online) {
+        long now = System.currentTimeMillis();
+        pending.merge(username, new Pending(!online, online, now),
+                (previous, next) -> new Pending(previous.from(), next.online(), previous.since()));
+    }
+
+    public void submitAll(Collection<String> usernames, boolean online) {
+        usernames.forEach(username -> submit(username, online));
+    }
+
+    /**
+     * Announces the changes whose window has elapsed. On failure they are kept
+     * for the next flush unless a newer change replaced them.
+     */
+    public void flush() {
+        long cutoff = System.currentTimeMillis() - windowMs;
+        Map<String, Boolean> due = new HashMap<>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending state = entry.getValue();
+            if (state.since() <= cutoff && pending.remove(entry.getKey(), state)) {
+                if (state.from() == state.online()) {
+                    coalesced.increment();
+                } else {
+                    due.put(entry.getKey(), state.online());
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        try {
+            announce(due);
+        } catch (Exception e) {
+            due.forEach((username, online) -> pending.putIfAbsent(username, new Pending(!online, online, cutoff)));
+            log.error("Failed to announce presence of {} users", due.size(), e);
+        }
+    }
+
+    private void announce(Map<String, Boolean> due) {
+        Map<String, List<String>> friendsByUser = new HashMap<>();
+        Set<String> allFriends = new LinkedHashSet<>();
+        for (FriendPairProjection pair : friendshipRepository.findAcceptedFriendPairs(due.keySet())) {
+            if (due.containsKey(pair.requester())) {
+                friendsByUser.computeIfAbsent(pair.requester(), k -> new ArrayList<>()).add(pair.addressee());
+                allFriends.add(pair.addressee());
+            }
+            if (due.containsKey(pair.addressee())) {
+                friendsByUser.computeIfAbsent(pair.addressee(), k -> new ArrayList<>()).add(pair.requester());
+                allFriends.add(pair.requester());
+            }
+        }
+        Set<String> onlineFriends = onlineAmong(allFriends);
+
+        due.forEach((username, online) -> {
+            List<String> recipients = friendsByUser.getOrDefault(username, List.of()).stream()
+                    .filter(onlineFriends::contains)
+                    .toList();
+            if (!recipients.isEmpty()) {
+                eventPublisher.publishEvent(FriendPayload.builder()
+                        .recipientUsernames(recipients)
+                        .destination(QUEUE_NOTIFICATIONS_STRING)
+                        .recipientStatus(online ? NotificationsType.USER_ONLINE : NotificationsType.USER_OFFLINE)
+                        .senderDisplayName(username)
+                        .build());
+            }
+        });
+        log.debug("Announced presence of {} users to {} online friends", due.size(), onlineFriends.size());
+    }
+
+    private Set<String> onlineAmong(Set<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Set.of();
+        }
+        List<String> candidates = new ArrayList<>(usernames);
+        List<Double> scores = redisTemplate.opsForZSet().score(ONLINE_USERS_KEY, candidates.toArray());
+        Set<String> online = new HashSet<>();
+        if (scores != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (scores.get(i) != null) {
+                    online.add(candidates.get(i));
+                }
+            }
+        }
+        return online;
+    }
+}
@@ -0,0 +1,318 @@
+package com.web.backend.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Service;
+
+import com.web.backend.model.ChatMessage;
+import com.web.backend.redis.RedisScripts;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read side of the per-conversation recent window ({@code chat:recent:*}) that
+ * RedisCacheConsumer appends to. On a miss the first page is loaded once per
+ * conversation (single-flight in this node, and across nodes through a short
+ * Redis lock) and written back, so reopening an idle conversation goes to
+ * Mongo once per TTL instead of on every open. A node that finds the lock
+ * taken checks the window once and otherwise reads Mongo without writing back,
+ * rather than holding a request thread while the other node fills it.
+ */
+@Service
+@Slf4j(topic = "RECENT-MESSAGE-CACHE")
+public class RecentMessageCache {
+
+    public static final String CHAT_RECENT_HASH_STRING = "chat:recent:hash:";
+    public static final String CHAT_RECENT_ZSET_STRING = "chat:recent:zset:";
+    /**
+     * Hash field set when the window holds the whole conversation, so short
+     * conversations count as hits too. Dropped as soon as the window is trimmed.
+     */
+    public static final String WINDOW_COMPLETE_FIELD_STRING = "__complete";
+    /**
+     * Suffix of the hash field holding the revision of the cached copy of a
+     * message, set once the message has been edited, revoked or reacted to.
+     */
+    public static final String REVISION_FIELD_SUFFIX_STRING = ":rev";
+
+    private static final String CHAT_RECENT_LOCK_STRING = "chat:recent:lock:";
+
+    /**
+     * KEYS: recent hash, recent zset.
+     * ARGV: window size, ttl seconds, complete field, complete marker (empty to skip), revision field suffix,
+     * then (message id, zset member, message, score, revision or empty) per message.
+     */
+    private static final DefaultRedisScript<Long> BACKFILL_SCRIPT = new DefaultRedisScript<>("""
+            for i = 6, #ARGV, 5 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 2])
+                redis.call('ZADD', KEYS[2], ARGV[i + 3], ARGV[i + 1])
+                if ARGV[i + 4] ~= '' then
+                    redis.call('HSET', KEYS[1], ARGV[i] .. ARGV[5], ARGV[i + 4])
+                end
+            end
+            if ARGV[4] ~= '' then
+                redis.call('HSET', KEYS[1], ARGV[3], ARGV[4])
+            end
+            local stop = -(tonumber(ARGV[1]) + 1)
+            local evicted = redis.call('ZRANGE', KEYS[2], 0, stop)
+            if #evicted > 0 then
+                redis.call('ZREMRANGEBYRANK', KEYS[2], 0, stop)
+                for _, member in ipairs(evicted) do
+                    local ok, id = pcall(cjson.decode, member)
+                    id = ok and id or member
+                    redis.call('HDEL', KEYS[1], id, id .. ARGV[5])
+                end
+                redis.call('HDEL', KEYS[1], ARGV[3])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            return #evicted
+            """, Long.class);
+
+    /**
+     * KEYS: recent hash.
+     * ARGV: message id, revision field, message, revision.
+     * Only replaces a message that is still in the window, and only with a newer revision.
+     */
+    private static final DefaultRedisScript<Long> PATCH_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                return 0
+            end
+            local current = tonumber(redis.call('HGET', KEYS[1], ARGV[2]) or '0')
+            if tonumber(ARGV[4]) <= current then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[3], ARGV[2], ARGV[4])
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<String, CompletableFuture<List<ChatMessage>>> inFlight = new ConcurrentHashMap<>();
+
+    @Getter
+    private final Duration ttl;
+    @Getter
+    private final int windowSize;
+    private final boolean readThrough;
+    private final Duration lockTtl;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter backfills;
+    private final Counter undecodable;
+
+    private record Window(List<ChatMessage> messages, boolean complete) {
+    }
+
+    public RecentMessageCache(RedisTemplate<String, Object> redisTemplate,
+            StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.recent-cache.ttl:5m}") Duration ttl,
+            @Value("${app.chat.recent-cache.window-size:50}") int windowSize,
+            @Value("${app.chat.recent-cache.read-through:true}") boolean readThrough,
+            @Value("${app.chat.recent-cache.lock-ttl:2s}") Duration lockTtl) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttl = ttl;
+        this.windowSize = windowSize;
+        this.readThrough = readThrough;
+        this.lockTtl = lockTtl;
+
+        this.hits = Counter.builder("chat.recent_cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.recent_cache.requests").tag("result", "miss").register(meterRegistry);
+        this.backfills = Counter.builder("chat.recent_cache.backfills")
+                .description("First pages written back into the recent window after a miss")
+                .register(meterRegistry);
+        this.undecodable = Counter.builder("chat.recent_cache.undecodable")
+                .description("Window reads served as a miss because a cached frame could not be decoded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the newest {@code limit} messages of a conversation, unsorted.
+     * On a miss {@code loader} is called at most once per conversation at a time
+     * and its result is written back into the window.
+     */
+    public List<ChatMessage> firstPage(String conversationId, int limit, Supplier<List<ChatMessage>> loader) {
+        Window window = read(conversationId, limit - 1L);
+        if (window.messages().size() >= limit || window.complete()) {
+            hits.increment();
+            return window.messages();
+        }
+        misses.increment();
+        if (!readThrough) {
+            return new ArrayList<>(loader.get());
+        }
+
+        CompletableFuture<List<ChatMessage>> mine = new CompletableFuture<>();
+        CompletableFuture<List<ChatMessage>> running = inFlight.putIfAbsent(conversationId, mine);
+        if (running != null) {
+            return new ArrayList<>(join(running));
+        }
+        try {
+            List<ChatMessage> loaded = loadOnce(conversationId, limit, loader);
+            mine.complete(loaded);
+            return new ArrayList<>(loaded);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(conversationId, mine);
+        }
+    }
+
+    /**
+     * The whole cached window of a conversation, unsorted.
+     */
+    public List<ChatMessage> readWindow(String conversationId) {
+        return read(conversationId, -1).messages();
+    }
+
+    private Window read(String conversationId, long end) {
+        Set<Object> messageIds = redisTemplate.opsForZSet().reverseRange(CHAT_RECENT_ZSET_STRING + conversationId, 0, end);
+
+        List<Object> fields = new ArrayList<>();
+        if (messageIds != null) {
+            fields.addAll(messageIds);
+        }
+        fields.add(WINDOW_COMPLETE_FIELD_STRING);
+
+        List<Object> redisObjects;
+        try {
+            redisObjects = redisTemplate.opsForHash().multiGet(CHAT_RECENT_HASH_STRING + conversationId, fields);
+        } catch (SerializationException e) {
+            // Written by a node with a codec this one does not know: a miss, not an error
+            undecodable.increment();
+            log.warn("Undecodable recent window of {}: {}", conversationId, e.getMessage());
+            return new Window(List.of(), false);
+        }
+        List<ChatMessage> messages = new ArrayList<>();
+        boolean complete = false;
+        if (redisObjects != null && !redisObjects.isEmpty()) {
+            complete = redisObjects.get(redisObjects.size() - 1) != null;
+            for (Object obj : redisObjects.subList(0, redisObjects.size() - 1)) {
+                if (obj instanceof ChatMessage message) {
+                    messages.add(message);
+                }
+            }
+        }
+        return new Window(messages, complete);
+    }
+
+    private List<ChatMessage> loadOnce(String conversationId, int limit, Supplier<List<ChatMessage>> loader) {
+        String lockKey = CHAT_RECENT_LOCK_STRING + conversationId;
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", lockTtl))) {
+            try {
+                List<ChatMessage> loaded = loader.get();
+                backfill(conversationId, loaded, loaded.size() < limit);
+                return loaded;
+            } finally {
+                stringRedisTemplate.delete(lockKey);
+            }
+        }
+
+        // Another node is filling the window; use it if it just landed, else read Mongo without writing back
+        Window window = read(conversationId, limit - 1L);
+        if (window.messages().size() >= limit || window.complete()) {
+            return window.messages();
+        }
+        return loader.get();
+    }
+
+    private void backfill(String conversationId, List<ChatMessage> messages, boolean complete) {
+        try {
+            @SuppressWarnings("unchecked")
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+
+            List<byte[]> keysAndArgs = new ArrayList<>();
+            keysAndArgs.add(bytes(CHAT_RECENT_HASH_STRING + conversationId));
+            keysAndArgs.add(bytes(CHAT_RECENT_ZSET_STRING + conversationId));
+            keysAndArgs.add(bytes(String.valueOf(windowSize)));
+            keysAndArgs.add(bytes(String.valueOf(ttl.toSeconds())));
+            keysAndArgs.add(bytes(WINDOW_COMPLETE_FIELD_STRING));
+            keysAndArgs.add(complete ? valueSerializer.serialize(Boolean.TRUE) : new byte[0]);
+            keysAndArgs.add(bytes(REVISION_FIELD_SUFFIX_STRING));
+            for (ChatMessage message : messages) {
+                if (message.getId() == null || message.getTimestamp() == null) {
+                    continue;
+                }
+                long score = message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                keysAndArgs.add(bytes(message.getId()));
+                keysAndArgs.add(valueSerializer.serialize(message.getId()));
+                keysAndArgs.add(valueSerializer.serialize(message));
+                keysAndArgs.add(bytes(String.valueOf(score)));
+                keysAndArgs.add(message.getRevision() == null ? new byte[0] : bytes(String.valueOf(message.getRevision())));
+            }
+
+            redisTemplate.execute((RedisCallback<Object>) connection -> RedisScripts.eval(connection, BACKFILL_SCRIPT, 2,
+                    keysAndArgs.toArray(byte[][]::new)));
+            backfills.increment();
+            log.debug("Backfilled {} messages into the recent window of {}", messages.size(), conversationId);
+        } catch (Exception e) {
+            log.error("Error backfilling recent window of {}", conversationId, e);
+        }
+    }
+
+    /**
+     * Replaces the cached copy of an edited, revoked or reacted-to message with
+     * its stored state, atomically and only if the window does not already hold
+     * the same or a later revision. Messages outside the window are left out.
+     *
+     * @return whether the cached copy was replaced
+     */
+    public boolean patch(ChatMessage message) {
+        if (message.getId() == null || message.getConversationId() == null || message.getRevision() == null) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] hashKey = bytes(CHAT_RECENT_HASH_STRING + message.getConversationId());
+        byte[] messageId = bytes(message.getId());
+        byte[] revisionField = bytes(message.getId() + REVISION_FIELD_SUFFIX_STRING);
+        byte[] value = valueSerializer.serialize(message);
+        byte[] revision = bytes(String.valueOf(message.getRevision()));
+
+        Long replaced = redisTemplate.execute((RedisCallback<Long>) connection -> RedisScripts.eval(connection,
+                PATCH_SCRIPT, 1, hashKey, messageId, revisionField, value, revision));
+        return replaced != null && replaced == 1L;
+    }
+
+    private static List<ChatMessage> join(CompletableFuture<List<ChatMessage>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+package com.web.backend.service.util;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.web.backend.common.UserStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-node cache of the facts checked before a private message is accepted:
+ * the recipient's account status and the friendship verdict of a pair.
+ * Entries are evicted locally and on every other node (via Redis pub/sub)
+ * once the transaction that changed them has committed; the TTL only bounds
+ * staleness if an invalidation message is lost.
+ */
+@Service
+@Slf4j(topic = "SEND-AUTHORIZATION-CACHE")
+public class SendAuthorizationCache {
+
+    public static final String CHANNEL_SEND_AUTH_STRING = "channel:send-auth";
+
+    private static final String USER_PREFIX_STRING = "user:";
+    private static final String PAIR_PREFIX_STRING = "pair:";
+    private static final String PAIR_SEPARATOR_STRING = "|";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Cache<String, UserStatus> recipientStatuses;
+
+    private final Cache<String, Boolean> friendships;
+
+    public SendAuthorizationCache(StringRedisTemplate stringRedisTemplate,
+            @Value("${app.chat.send-auth-cache.max-size:100000}") long maxSize,
+            @Value("${app.chat.send-auth-cache.ttl:5m}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.recipientStatuses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.friendships = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public UserStatus getRecipientStatus(String recipient, Supplier<UserStatus> loader) {
+        return recipientStatuses.get(recipient, key -> loader.get());
+    }
+
+    public boolean isFriend(String user1, String user2, BooleanSupplier loader) {
+        return friendships.get(pairKey(user1, user2), key -> loader.getAsBoolean());
+    }
+
+    public void evictUser(String username) {
+        broadcast(USER_PREFIX_STRING + username);
+    }
+
+    public void evictFriendship(String user1, String user2) {
+        broadcast(PAIR_PREFIX_STRING + pairKey(user1, user2));
+    }
+
+    /**
+     * Entry point for invalidations published by any node, including this one.
+     */
+    public void onInvalidation(String message) {
+        applyInvalidation(message);
+    }
+
+    private void broadcast(String message) {
+        applyInvalidation(message);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+
+    private void publish(String message) {
+        // Evict again: a concurrent send may have reloaded the pre-commit state.
+        applyInvalidation(message);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL_SEND_AUTH_STRING, message);
+        } catch (Exception e) {
+            log.warn("Failed to broadcast send-auth invalidation {}: {}", message, e.getMessage());
+        }
+    }
+
+    private void applyInvalidation(String message) {
+        if (message.startsWith(USER_PREFIX_STRING)) {
+            String username = message.substring(USER_PREFIX_STRING.length());
+            recipientStatuses.invalidate(username);
+            friendships.asMap().keySet().removeIf(key -> isPairMember(key, username));
+        } else if (message.startsWith(PAIR_PREFIX_STRING)) {
+            friendships.invalidate(message.substring(PAIR_PREFIX_STRING.length()));
+        }
+    }
+
+    private static String pairKey(String user1, String user2) {
+        return (user1.compareTo(user2) < 0)
+                ? user1 + PAIR_SEPARATOR_STRING + user2
+                : user2 + PAIR_SEPARATOR_STRING + user1;
+    }
+
+    private static boolean isPairMember(String pairKey, String username) {
+        return pairKey.startsWith(username + PAIR_SEPARATOR_STRING)
+                || pairKey.endsWith(PAIR_SEPARATOR_STRING + username);
+    }
+}
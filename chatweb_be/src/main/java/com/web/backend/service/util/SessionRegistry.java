@@ -0,0 +1,422 @@
+package com.web.backend.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import com.web.backend.config.ServerIdentity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-node record of the WebSocket sessions each node holds, guarded by a lease
+ * the node keeps renewing.
+ * <p>
+ * Every node owns {@code presence:node:<serverId>} (field = username, value =
+ * sessions on that node) and {@code presence:lease:<serverId>}. The global
+ * presence keys ({@code online_users_count}, {@code online_users}) are updated
+ * in the same script as the node hash, so they always equal the sum over the
+ * live nodes. When a lease lapses, any node can {@link #reclaim} the dead
+ * node's sessions in one script instead of waiting for the zombie sweep.
+ * <p>
+ * The scripts touch keys derived from the node ids, so they assume a single
+ * (non-cluster) Redis, like the rest of the presence keys.
+ */
+@Service
+@Slf4j(topic = "SESSION-REGISTRY")
+public class SessionRegistry {
+
+    private static final String NODE_SESSIONS_STRING = "presence:node:";
+    private static final String NODE_LEASE_STRING = "presence:lease:";
+    private static final String NODES_STRING = "presence:nodes";
+    private static final String ONLINE_USERS_KEY = "online_users";
+    private static final String ONLINE_USERS_COUNT_KEY = "online_users_count";
+    private static final String WS_ROUTING_STRING = "ws:routing:";
+
+    private static final int SYNC_BATCH_SIZE = 500;
+
+    /**
+     * A user that lost the sessions of a reclaimed node: {@code serverId} is the
+     * node still holding the user's route, or null when the user is now offline.
+     */
+    public record ReclaimedUser(String username, String serverId) {
+    }
+
+    /**
+     * KEYS: node hash, online count hash, online zset.
+     * ARGV: username, zset member, now.
+     */
+    private static final byte[] REGISTER_SCRIPT = """
+            redis.call('HINCRBY', KEYS[1], ARGV[1], 1)
+            local total = redis.call('HINCRBY', KEYS[2], ARGV[1], 1)
+            if total <= 0 then
+                redis.call('HSET', KEYS[2], ARGV[1], 1)
+                total = 1
+            end
+            redis.call('ZADD', KEYS[3], ARGV[3], ARGV[2])
+            return total
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: node hash, online count hash. ARGV: username.
+     * A session this node no longer holds (already reclaimed) leaves the total alone.
+     */
+    private static final byte[] UNREGISTER_SCRIPT = """
+            local held = redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+            if held <= 0 then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            if held < 0 then
+                return tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+            end
+            local total = redis.call('HINCRBY', KEYS[2], ARGV[1], -1)
+            if total < 0 then
+                redis.call('HSET', KEYS[2], ARGV[1], 0)
+                total = 0
+            end
+            return total
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: online count hash, online zset. ARGV: route prefix, then (username, zset member) per user.
+     * Drops the route in the same step, so it cannot delete one written by a reconnect.
+     * Returns the users that went offline.
+     */
+    private static final byte[] CLEAR_IF_OFFLINE_SCRIPT = """
+            local cleared = {}
+            for i = 2, #ARGV, 2 do
+                if tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0') <= 0 then
+                    redis.call('HDEL', KEYS[1], ARGV[i])
+                    redis.call('ZREM', KEYS[2], ARGV[i + 1])
+                    redis.call('DEL', ARGV[1] .. ARGV[i])
+                    table.insert(cleared, ARGV[i])
+                end
+            end
+            return cleared
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: lease, nodes set. ARGV: server id, lease ms.
+     * Returns 0 when the lease had lapsed, so the node's sessions may have been reclaimed.
+     */
+    private static final byte[] RENEW_SCRIPT = """
+            redis.call('SADD', KEYS[2], ARGV[1])
+            if redis.call('PEXPIRE', KEYS[1], ARGV[2]) == 1 then
+                return 1
+            end
+            redis.call('SET', KEYS[1], '1', 'PX', ARGV[2])
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: node hash, online count hash, online zset, lease, nodes set.
+     * ARGV: server id, lease ms, now, then (username, zset member, sessions) per user.
+     * Brings the node hash in line with the sessions the node really holds and
+     * returns the users that had gone offline meanwhile.
+     */
+    private static final byte[] SYNC_SCRIPT = """
+            redis.call('SET', KEYS[4], '1', 'PX', ARGV[2])
+            redis.call('SADD', KEYS[5], ARGV[1])
+            local restored = {}
+            for i = 4, #ARGV, 3 do
+                local held = tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0')
+                local delta = tonumber(ARGV[i + 2]) - held
+                if delta ~= 0 then
+                    local total = redis.call('HINCRBY', KEYS[2], ARGV[i], delta)
+                    if delta > 0 and total == delta then
+                        table.insert(restored, ARGV[i])
+                    end
+                end
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 2])
+                redis.call('ZADD', KEYS[3], ARGV[3], ARGV[i + 1])
+            end
+            return restored
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS: dead node hash, online count hash, online zset, dead node lease, nodes set.
+     * ARGV: dead server id, node hash prefix, route prefix, then (username, zset member) per user.
+     * Returns (username, server id or '') for every user routed to the dead node or now offline.
+     */
+    private static final byte[] RECLAIM_SCRIPT = """
+            if redis.call('EXISTS', KEYS[4]) == 1 then
+                return {}
+            end
+            local deadRoute = cjson.encode(ARGV[1])
+            local nodes = redis.call('SMEMBERS', KEYS[5])
+            local changed = {}
+            for i = 4, #ARGV, 2 do
+                local user = ARGV[i]
+                local held = tonumber(redis.call('HGET', KEYS[1], user) or '0')
+                if held > 0 and redis.call('HEXISTS', KEYS[2], user) == 1 then
+                    local total = redis.call('HINCRBY', KEYS[2], user, -held)
+                    if total <= 0 then
+                        redis.call('HDEL', KEYS[2], user)
+                        redis.call('ZREM', KEYS[3], ARGV[i + 1])
+                        table.insert(changed, user)
+                        table.insert(changed, '')
+                    elseif redis.call('GET', ARGV[3] .. user) == deadRoute then
+                        for _, node in ipairs(nodes) do
+                            if node ~= ARGV[1] and redis.call('HEXISTS', ARGV[2] .. node, user) == 1 then
+                                redis.call('SET', ARGV[3] .. user, cjson.encode(node))
+                                table.insert(changed, user)
+                                table.insert(changed, node)
+                                break
+                            end
+                        end
+                    end
+                end
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('SREM', KEYS[5], ARGV[1])
+            return changed
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Duration leaseTtl;
+
+    public SessionRegistry(RedisTemplate<String, Object> redisTemplate,
+            @Value("${app.presence.lease.ttl:30s}") Duration leaseTtl) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTtl = leaseTtl;
+    }
+
+    /**
+     * Records a new session of {@code username} on this node.
+     *
+     * @return the user's sessions across all nodes, including this one
+     */
+    public long register(String username) {
+        Long total = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(REGISTER_SCRIPT, ReturnType.INTEGER, 3,
+                        bytes(NODE_SESSIONS_STRING + ServerIdentity.SERVER_ID),
+                        bytes(ONLINE_USERS_COUNT_KEY),
+                        bytes(ONLINE_USERS_KEY),
+                        bytes(username),
+                        member(username),
+                        bytes(String.valueOf(System.currentTimeMillis()))));
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Drops a closed session of {@code username} on this node.
+     *
+     * @return the user's sessions left across all nodes
+     */
+    public long unregister(String username) {
+        Long total = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(UNREGISTER_SCRIPT, ReturnType.INTEGER, 2,
+                        bytes(NODE_SESSIONS_STRING + ServerIdentity.SERVER_ID),
+                        bytes(ONLINE_USERS_COUNT_KEY),
+                        bytes(username)));
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Removes the given users from the global presence keys and drops their
+     * routes if no node holds a session of theirs anymore,
+     * {@value #SYNC_BATCH_SIZE} users per script.
+     *
+     * @return the users that went offline
+     */
+    public List<String> clearIfOffline(Collection<String> usernames) {
+        List<String> candidates = new ArrayList<>(usernames);
+        List<String> cleared = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += SYNC_BATCH_SIZE) {
+            List<byte[]> keysAndArgs = new ArrayList<>(List.of(
+                    bytes(ONLINE_USERS_COUNT_KEY),
+                    bytes(ONLINE_USERS_KEY),
+                    bytes(WS_ROUTING_STRING)));
+            for (String username : candidates.subList(from, Math.min(from + SYNC_BATCH_SIZE, candidates.size()))) {
+                keysAndArgs.add(bytes(username));
+                keysAndArgs.add(member(username));
+            }
+            List<Object> batchCleared = redisTemplate.execute((RedisCallback<List<Object>>) connection -> connection
+                    .scriptingCommands().eval(CLEAR_IF_OFFLINE_SCRIPT, ReturnType.MULTI, 2,
+                            keysAndArgs.toArray(byte[][]::new)));
+            if (batchCleared != null) {
+                batchCleared.forEach(username -> cleared.add(string(username)));
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Re-reads the global session counts with one HMGET.
+     *
+     * @return the given users that still have no session on any node
+     */
+    public List<String> findOffline(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return List.of();
+        }
+        List<byte[]> counts = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection
+                .hashCommands().hMGet(bytes(ONLINE_USERS_COUNT_KEY),
+                        usernames.stream().map(SessionRegistry::bytes).toArray(byte[][]::new)));
+        if (counts == null) {
+            return usernames;
+        }
+        List<String> offline = new ArrayList<>();
+        for (int i = 0; i < usernames.size(); i++) {
+            byte[] count = counts.get(i);
+            if (count == null || Long.parseLong(string(count)) <= 0) {
+                offline.add(usernames.get(i));
+            }
+        }
+        return offline;
+    }
+
+    /**
+     * Extends this node's lease.
+     *
+     * @return false when the lease had lapsed, in which case the node's sessions
+     *         must be written again with {@link #sync}
+     */
+    public boolean renewLease() {
+        Long renewed = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(RENEW_SCRIPT, ReturnType.INTEGER, 2,
+                        bytes(NODE_LEASE_STRING + ServerIdentity.SERVER_ID),
+                        bytes(NODES_STRING),
+                        bytes(ServerIdentity.SERVER_ID),
+                        bytes(String.valueOf(leaseTtl.toMillis()))));
+        return renewed != null && renewed == 1L;
+    }
+
+    /**
+     * Rewrites this node's sessions from the ones it really holds and takes the lease.
+     *
+     * @param sessionsByUser open sessions per username on this node
+     * @return users that were offline before the sync
+     */
+    public List<String> sync(Map<String, Integer> sessionsByUser) {
+        List<String> restored = new ArrayList<>();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(sessionsByUser.entrySet());
+        int from = 0;
+        do {
+            List<Map.Entry<String, Integer>> batch = entries.subList(from, Math.min(from + SYNC_BATCH_SIZE, entries.size()));
+            List<byte[]> keysAndArgs = new ArrayList<>(List.of(
+                    bytes(NODE_SESSIONS_STRING + ServerIdentity.SERVER_ID),
+                    bytes(ONLINE_USERS_COUNT_KEY),
+                    bytes(ONLINE_USERS_KEY),
+                    bytes(NODE_LEASE_STRING + ServerIdentity.SERVER_ID),
+                    bytes(NODES_STRING),
+                    bytes(ServerIdentity.SERVER_ID),
+                    bytes(String.valueOf(leaseTtl.toMillis())),
+                    bytes(String.valueOf(System.currentTimeMillis()))));
+            for (Map.Entry<String, Integer> entry : batch) {
+                keysAndArgs.add(bytes(entry.getKey()));
+                keysAndArgs.add(member(entry.getKey()));
+                keysAndArgs.add(bytes(String.valueOf(entry.getValue())));
+            }
+            List<Object> batchRestored = redisTemplate.execute((RedisCallback<List<Object>>) connection -> connection
+                    .scriptingCommands().eval(SYNC_SCRIPT, ReturnType.MULTI, 5, keysAndArgs.toArray(byte[][]::new)));
+            if (batchRestored != null) {
+                batchRestored.forEach(username -> restored.add(string(username)));
+            }
+            from += SYNC_BATCH_SIZE;
+        } while (from < entries.size());
+        log.info("Synced {} local users into the session registry of {}", entries.size(), ServerIdentity.SERVER_ID);
+        return restored;
+    }
+
+    /**
+     * Nodes that registered sessions and whose lease has lapsed, other than this one.
+     */
+    public List<String> findExpiredNodes() {
+        // Node ids are written raw by the scripts, so they are read without the value serializer
+        Set<byte[]> members = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection -> connection
+                .setCommands().sMembers(bytes(NODES_STRING)));
+        List<String> others = members == null ? List.of() : members.stream()
+                .map(SessionRegistry::string)
+                .filter(node -> !ServerIdentity.SERVER_ID.equals(node))
+                .toList();
+        if (others.isEmpty()) {
+            return List.of();
+        }
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String node : others) {
+                connection.keyCommands().exists(bytes(NODE_LEASE_STRING + node));
+            }
+            return null;
+        });
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < others.size(); i++) {
+            if (Boolean.FALSE.equals(exists.get(i))) {
+                expired.add(others.get(i));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Takes over the sessions of a node whose lease lapsed: they are subtracted
+     * from the global presence, and users still connected elsewhere are routed
+     * to one of their live nodes. Users the zombie sweep already took out of the
+     * presence are skipped. Does nothing while the node holds its lease.
+     */
+    public List<ReclaimedUser> reclaim(String serverId) {
+        String nodeKey = NODE_SESSIONS_STRING + serverId;
+        Set<Object> usernames = redisTemplate.opsForHash().keys(nodeKey);
+
+        List<byte[]> keysAndArgs = new ArrayList<>(List.of(
+                bytes(nodeKey),
+                bytes(ONLINE_USERS_COUNT_KEY),
+                bytes(ONLINE_USERS_KEY),
+                bytes(NODE_LEASE_STRING + serverId),
+                bytes(NODES_STRING),
+                bytes(serverId),
+                bytes(NODE_SESSIONS_STRING),
+                bytes(WS_ROUTING_STRING)));
+        for (Object username : usernames) {
+            keysAndArgs.add(bytes(String.valueOf(username)));
+            keysAndArgs.add(member(String.valueOf(username)));
+        }
+        List<Object> changed = redisTemplate.execute((RedisCallback<List<Object>>) connection -> connection
+                .scriptingCommands().eval(RECLAIM_SCRIPT, ReturnType.MULTI, 5, keysAndArgs.toArray(byte[][]::new)));
+
+        Map<String, String> reclaimed = new LinkedHashMap<>();
+        if (changed != null) {
+            for (int i = 0; i + 1 < changed.size(); i += 2) {
+                String serverIdOrEmpty = string(changed.get(i + 1));
+                reclaimed.put(string(changed.get(i)), serverIdOrEmpty.isEmpty() ? null : serverIdOrEmpty);
+            }
+        }
+        log.info("Reclaimed {} users from expired node {}", usernames.size(), serverId);
+        return reclaimed.entrySet().stream().map(e -> new ReclaimedUser(e.getKey(), e.getValue())).toList();
+    }
+
+    /**
+     * Gives up this node's lease, so its sessions can be reclaimed right away.
+     */
+    public void releaseLease() {
+        redisTemplate.delete(NODE_LEASE_STRING + ServerIdentity.SERVER_ID);
+    }
+
+    private byte[] member(String username) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        return valueSerializer.serialize(username);
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static byte[] bytes(String value) {
+        return Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,241 @@
+package com.web.backend.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import com.web.backend.redis.RedisScripts;
+import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.projection.UnreadCountProjection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Owner of the unread counters: one Redis hash per recipient
+ * ({@code unread:counts:<recipient>}, field = sender, value = count).
+ * <p>
+ * A hash only counts once it is primed from Mongo, marked by
+ * {@link #PRIMED_FIELD_STRING}, so a recipient with nothing unread is a hit too.
+ * Increments are skipped for hashes that are not primed, since priming replaces
+ * them anyway. Every write is a single Lua script, so concurrent increments,
+ * resets and repairs never interleave.
+ */
+@Service
+@Slf4j(topic = "UNREAD-COUNTER-SERVICE")
+public class UnreadCounterService {
+
+    public static final String UNREAD_COUNTS_STRING = "unread:counts:";
+    public static final String PRIMED_FIELD_STRING = "__primed";
+
+    /**
+     * KEYS: counts hash. ARGV: primed field, ttl seconds, then (sender, delta) pairs.
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                return 0
+            end
+            for i = 3, #ARGV, 2 do
+                redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: counts hash. ARGV: primed field, ttl seconds, then (sender, count) pairs.
+     */
+    private static final DefaultRedisScript<Long> PRIME_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then
+                return 0
+            end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], '1')
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: counts hash. ARGV: primed field, sender, expected value ('' when absent), new value.
+     */
+    private static final DefaultRedisScript<Long> COMPARE_AND_SET_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                return 0
+            end
+            local current = redis.call('HGET', KEYS[1], ARGV[2])
+            if (current or '') ~= ARGV[3] then
+                return 0
+            end
+            if tonumber(ARGV[4]) > 0 then
+                redis.call('HSET', KEYS[1], ARGV[2], ARGV[4])
+            else
+                redis.call('HDEL', KEYS[1], ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final MessageRepository messageRepository;
+
+    private final Duration ttl;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UnreadCounterService(StringRedisTemplate stringRedisTemplate,
+            MessageRepository messageRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.unread.ttl:7d}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.messageRepository = messageRepository;
+        this.ttl = ttl;
+
+        this.hits = Counter.builder("chat.unread.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.unread.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Unread counts per sender; primes the counters from Mongo on a miss.
+     */
+    public Map<String, Long> getCounts(String recipient) {
+        Map<String, String> cached = stringRedisTemplate.<String, String>opsForHash()
+                .entries(UNREAD_COUNTS_STRING + recipient);
+        if (cached.containsKey(PRIMED_FIELD_STRING)) {
+            hits.increment();
+            return toCounts(cached);
+        }
+        misses.increment();
+
+        Map<String, Long> counts = new HashMap<>();
+        for (UnreadCountProjection projection : messageRepository.countUnreadMessagesBySender(recipient)) {
+            counts.put(projection.sender(), projection.count());
+        }
+        prime(recipient, counts);
+        return counts;
+    }
+
+    /**
+     * Adds new messages to their recipients' counters in one pipeline.
+     *
+     * @param deltas recipient -> sender -> number of new messages
+     */
+    public void increment(Map<String, Map<String, Long>> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        byte[] primedField = bytes(PRIMED_FIELD_STRING);
+        byte[] ttlSeconds = bytes(String.valueOf(ttl.toSeconds()));
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisScripts.load(connection, INCREMENT_SCRIPT);
+            deltas.forEach((recipient, bySender) -> {
+                List<byte[]> keysAndArgs = new ArrayList<>();
+                keysAndArgs.add(bytes(UNREAD_COUNTS_STRING + recipient));
+                keysAndArgs.add(primedField);
+                keysAndArgs.add(ttlSeconds);
+                bySender.forEach((sender, delta) -> {
+                    keysAndArgs.add(bytes(sender));
+                    keysAndArgs.add(bytes(String.valueOf(delta)));
+                });
+                RedisScripts.evalSha(connection, INCREMENT_SCRIPT, 1, keysAndArgs.toArray(byte[][]::new));
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Clears the counter of one sender, once the recipient has read the conversation.
+     */
+    public void reset(String recipient, String sender) {
+        stringRedisTemplate.opsForHash().delete(UNREAD_COUNTS_STRING + recipient, sender);
+    }
+
+    /**
+     * Counters of several recipients in one pipeline; recipients whose hash is
+     * not primed are left out.
+     */
+    public Map<String, Map<String, Long>> readPrimed(List<String> recipients) {
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String recipient : recipients) {
+                connection.hashCommands().hGetAll(bytes(UNREAD_COUNTS_STRING + recipient));
+            }
+            return null;
+        });
+
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (int i = 0; i < recipients.size(); i++) {
+            if (results.get(i) instanceof Map<?, ?> entries && entries.containsKey(PRIMED_FIELD_STRING)) {
+                Map<String, String> fields = new HashMap<>();
+                entries.forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+                counts.put(recipients.get(i), toCounts(fields));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Sets one counter only if it still holds {@code expected}, so a repair
+     * never overwrites an increment that landed after the counter was read.
+     *
+     * @return whether the counter was changed
+     */
+    public boolean compareAndSet(String recipient, String sender, long expected, long value) {
+        Long changed = stringRedisTemplate.execute((RedisCallback<Long>) connection -> RedisScripts.eval(connection,
+                COMPARE_AND_SET_SCRIPT, 1,
+                        bytes(UNREAD_COUNTS_STRING + recipient),
+                        bytes(PRIMED_FIELD_STRING),
+                        bytes(sender),
+                        expected == 0 ? new byte[0] : bytes(String.valueOf(expected)),
+                        bytes(String.valueOf(value))));
+        return changed != null && changed == 1;
+    }
+
+    private void prime(String recipient, Map<String, Long> counts) {
+        try {
+            List<byte[]> keysAndArgs = new ArrayList<>();
+            keysAndArgs.add(bytes(UNREAD_COUNTS_STRING + recipient));
+            keysAndArgs.add(bytes(PRIMED_FIELD_STRING));
+            keysAndArgs.add(bytes(String.valueOf(ttl.toSeconds())));
+            counts.forEach((sender, count) -> {
+                keysAndArgs.add(bytes(sender));
+                keysAndArgs.add(bytes(String.valueOf(count)));
+            });
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> RedisScripts.eval(connection,
+                    PRIME_SCRIPT, 1, keysAndArgs.toArray(byte[][]::new)));
+        } catch (Exception e) {
+            log.error("Error priming unread counters of {}", recipient, e);
+        }
+    }
+
+    private static Map<String, Long> toCounts(Map<String, String> fields) {
+        Map<String, Long> counts = new HashMap<>();
+        fields.forEach((sender, value) -> {
+            if (!PRIMED_FIELD_STRING.equals(sender)) {
+                long count = Long.parseLong(value);
+                if (count > 0) {
+                    counts.put(sender, count);
+                }
+            }
+        });
+        return counts;
+    }
+
+    private static byte[] bytes(String value) {
+        return Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,43 +1,262 @@
 package com.web.backend.service.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.web.backend.config.ServerIdentity;
+import com.web.backend.redis.RedisWsCoalescer;
 import com.web.backend.redis.RedisWsMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+/**
+ * Routes WebSocket deliveries to the node holding the user's session.
+ * The username -> serverId table lives in Redis ({@code ws:routing:*}) and is
+ * mirrored in a per-node near-cache. Every route change is written through
+ * {@link #registerRoute} / {@link #removeRoute} and broadcast on
+ * {@link #CHANNEL_ROUTING_STRING} so all near-caches stay coherent; the TTL is
+ * only a safety net for a lost broadcast.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j(topic = "WS-ROUTING-SERVICE")
 public class WebSocketRoutingService {
 
     private final SimpMessagingTemplate simpMessagingTemplate;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisWsCoalescer redisWsCoalescer;
+
+    public static final String CHANNEL_ROUTING_STRING = "channel:routing";
 
     private static final String WS_ROUTING_STRING = "ws:routing:";
-    private static final String CHANNEL_SERVER_STRING = "channel:server:";
+    private static final String ROUTE_SEPARATOR_STRING = "|";
+    private static final String OFFLINE_STRING = "";
+
+    private final Cache<String, String> routes;
+
+    public WebSocketRoutingService(SimpMessagingTemplate simpMessagingTemplate,
+            RedisTemplate<String, Object> redisTemplate,
+            StringRedisTemplate stringRedisTemplate,
+            RedisWsCoalescer redisWsCoalescer,
+            @Value("${app.websocket.routing-cache.max-size:100000}") long maxSize,
+            @Value("${app.websocket.routing-cache.ttl:30s}") Duration ttl) {
+        this.simpMessagingTemplate = simpMessagingTemplate;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisWsCoalescer = redisWsCoalescer;
+        this.routes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
 
     public void routeMessage(String username, String destination, Object payload) throws Exception {
         if (username == null) {
             return;
         }
-        String targetServerId = (String) redisTemplate.opsForValue().get(WS_ROUTING_STRING + username);
+        String targetServerId = resolveServer(username);
         if (targetServerId != null) {
             if (ServerIdentity.SERVER_ID.equals(targetServerId)) {
                 simpMessagingTemplate.convertAndSendToUser(username, destination, payload);
                 log.info("Sent locally to {}", username);
             } else {
-                RedisWsMessage wsMessage = new RedisWsMessage(username, destination, payload);
-                redisTemplate.convertAndSend(CHANNEL_SERVER_STRING + targetServerId,
-                        objectMapper.writeValueAsString(wsMessage));
+                redisWsCoalescer.enqueue(targetServerId, new RedisWsMessage(username, destination, payload));
                 log.info("Routed to Server {} for user {}", targetServerId, username);
             }
         } else {
             log.info("User {} is offline, skipped routing.", username);
         }
     }
+
+    /**
+     * Routes a batch of deliveries with a single MGET for all distinct recipients.
+     * Local recipients are served in place; remote ones go to the coalescer,
+     * which publishes them as one envelope per target server.
+     */
+    public void routeMessages(List<RedisWsMessage> deliveries) {
+        if (deliveries == null || deliveries.isEmpty()) {
+            return;
+        }
+        Map<String, String> servers = resolveServers(deliveries.stream()
+                .map(RedisWsMessage::getRecipient)
+                .filter(Objects::nonNull)
+                .toList());
+
+        Set<String> remoteServers = new HashSet<>();
+        for (RedisWsMessage delivery : deliveries) {
+            String username = delivery.getRecipient();
+            String targetServerId = servers.get(username);
+            if (targetServerId == null) {
+                log.info("User {} is offline, skipped routing.", username);
+            } else if (ServerIdentity.SERVER_ID.equals(targetServerId)) {
+                simpMessagingTemplate.convertAndSendToUser(username, delivery.getDestination(),
+                        delivery.getPayload());
+            } else {
+                redisWsCoalescer.enqueue(targetServerId, delivery);
+                remoteServers.add(targetServerId);
+            }
+        }
+        log.info("Routed batch of {} deliveries ({} remote servers)", deliveries.size(), remoteServers.size());
+    }
+
+    /**
+     * Resolves the server of every given user, going to Redis with one MGET for
+     * the near-cache misses only. Offline users are absent from the result.
+     */
+    public Map<String, String> resolveServers(Collection<String> usernames) {
+        Map<String, String> servers = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String username : usernames.stream().distinct().toList()) {
+            String cached = routes.getIfPresent(username);
+            if (cached == null) {
+                misses.add(username);
+            } else if (!OFFLINE_STRING.equals(cached)) {
+                servers.put(username, cached);
+            }
+        }
+        if (misses.isEmpty()) {
+            return servers;
+        }
+        List<Object> values = redisTemplate.opsForValue()
+                .multiGet(misses.stream().map(u -> WS_ROUTING_STRING + u).toList());
+        if (values == null) {
+            return servers;
+        }
+        for (int i = 0; i < misses.size(); i++) {
+            if (values.get(i) instanceof String serverId) {
+                servers.put(misses.get(i), serverId);
+                routes.put(misses.get(i), serverId);
+            } else {
+                routes.put(misses.get(i), OFFLINE_STRING);
+            }
+        }
+        return servers;
+    }
+
+    /**
+     * Maps the user to this node and tells every node about it.
+     */
+    public void registerRoute(String username) {
+        redisTemplate.opsForValue().set(WS_ROUTING_STRING + username, ServerIdentity.SERVER_ID);
+        routes.put(username, ServerIdentity.SERVER_ID);
+        broadcastRoute(username, ServerIdentity.SERVER_ID);
+    }
+
+    /**
+     * Maps a batch of users to this node with one MSET and announces the routes
+     * in one pipelined round of publishes.
+     */
+    public void registerRoutes(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        Map<String, Object> values = new HashMap<>(usernames.size());
+        usernames.forEach(username -> values.put(WS_ROUTING_STRING + username, ServerIdentity.SERVER_ID));
+        redisTemplate.opsForValue().multiSet(values);
+        usernames.forEach(username -> routes.put(username, ServerIdentity.SERVER_ID));
+        broadcastRoutes(usernames, ServerIdentity.SERVER_ID);
+    }
+
+    /**
+     * Drops the user's route and tells every node the user is offline.
+     */
+    public void removeRoute(String username) {
+        redisTemplate.delete(WS_ROUTING_STRING + username);
+        routes.put(username, OFFLINE_STRING);
+        broadcastRoute(username, OFFLINE_STRING);
+    }
+
+    /**
+     * Drops the routes of a batch of users with one DEL and announces them
+     * offline in one pipelined round of publishes.
+     */
+    public void removeRoutes(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        redisTemplate.delete(usernames.stream().map(u -> WS_ROUTING_STRING + u).toList());
+        usernames.forEach(username -> routes.put(username, OFFLINE_STRING));
+        broadcastRoutes(usernames, OFFLINE_STRING);
+    }
+
+    /**
+     * Announces a batch of users offline whose routes were already dropped in
+     * Redis, in one pipelined round of publishes.
+     */
+    public void announceOffline(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        usernames.forEach(username -> routes.put(username, OFFLINE_STRING));
+        broadcastRoutes(usernames, OFFLINE_STRING);
+    }
+
+    /**
+     * Tells every node about a route that was already written to Redis, such as
+     * one moved off a node whose sessions were reclaimed.
+     */
+    public void announceRoute(String username, String serverId) {
+        routes.put(username, serverId);
+        broadcastRoute(username, serverId);
+    }
+
+    /**
+     * Entry point for route changes published by any node, including this one.
+     */
+    public void onRouteChange(String message) {
+        int separator = message.lastIndexOf(ROUTE_SEPARATOR_STRING);
+        if (separator <= 0) {
+            return;
+        }
+        routes.put(message.substring(0, separator), message.substring(separator + 1));
+    }
+
+    private String resolveServer(String username) {
+        String cached = routes.get(username, key -> {
+            Object value = redisTemplate.opsForValue().get(WS_ROUTING_STRING + key);
+            return (value instanceof String serverId) ? serverId : OFFLINE_STRING;
+        });
+        return OFFLINE_STRING.equals(cached) ? null : cached;
+    }
+
+    private void broadcastRoutes(Collection<String> usernames, String serverId) {
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] channel = CHANNEL_ROUTING_STRING.getBytes(StandardCharsets.UTF_8);
+                for (String username : usernames) {
+                    connection.publish(channel,
+                            (username + ROUTE_SEPARATOR_STRING + serverId).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            routes.invalidateAll(usernames);
+            log.warn("Failed to broadcast {} route changes: {}", usernames.size(), e.getMessage());
+        }
+    }
+
+    private void broadcastRoute(String username, String serverId) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL_ROUTING_STRING, username + ROUTE_SEPARATOR_STRING + serverId);
+        } catch (Exception e) {
+            routes.invalidate(username);
+            log.warn("Failed to broadcast route change for {}: {}", username, e.getMessage());
+        }
+    }
 }
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.web.backend.config.localresolverconfig.Translator;
 import com.web.backend.controller.request.MarkReadRequest;
 import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.controller.response.ConversationResponse;
 import com.web.backend.controller.response.CursorResponse;
+import com.web.backend.controller.response.SyncResponse;
 import com.web.backend.controller.response.UnreadCountsResponse;
 import com.web.backend.jwt.JwtAuthenticationFilter;
 import com.web.backend.model.UserEntity;
@@ -34,6 +36,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -116,6 +119,80 @@ class MessageControllerTest {
                                 .andExpect(jsonPath("$.data.nextCursor").value("nextCursor123"));
         }
 
+        @Test
+        void testGetPrivateMessageChanges_Success() throws Exception {
+                ChatMessageResponse chatResponse = ChatMessageResponse.builder()
+                                .id("msg123")
+                                .changeSeq(8L)
+                                .build();
+
+                when(messageService.findPrivateMessageChanges(eq("testuser"), eq("otheruser"), eq(7L), eq(100)))
+                                .thenReturn(new SyncResponse<>(List.of(chatResponse), 8L, false));
+
+                mockMvc.perform(get("/api/messages/private/changes")
+                                .principal(mockAuth)
+                                .param("peer", "otheruser")
+                                .param("since", "7"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.code").value(200))
+                                .andExpect(jsonPath("$.data.changes[0].changeSeq").value(8))
+                                .andExpect(jsonPath("$.data.nextSeq").value(8))
+                                .andExpect(jsonPath("$.data.hasMore").value(false));
+        }
+
+        @Test
+        void testGetPrivateMessageChanges_SizeIsClamped() throws Exception {
+                when(messageService.findPrivateMessageChanges(eq("testuser"), eq("otheruser"), eq(7L), eq(1)))
+                                .thenReturn(new SyncResponse<>(List.of(), 7L, false));
+
+                mockMvc.perform(get("/api/messages/private/changes")
+                                .principal(mockAuth)
+                                .param("peer", "otheruser")
+                                .param("since", "7")
+                                .param("size", "0"))
+                                .andExpect(status().isOk());
+
+                verify(messageService).findPrivateMessageChanges("testuser", "otheruser", 7L, 1);
+        }
+
+        @Test
+        void testGetConversations_Success() throws Exception {
+                ConversationResponse conversation = ConversationResponse.builder()
+                                .conversationId("otheruser_testuser")
+                                .peer("otheruser")
+                                .unreadCount(2)
+                                .build();
+
+                when(messageService.findConversations(eq("testuser"), eq(null), eq(20)))
+                                .thenReturn(new CursorResponse<>(List.of(conversation), "nextCursor123", true));
+
+                mockMvc.perform(get("/api/messages/conversations")
+                                .principal(mockAuth))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.code").value(200))
+                                .andExpect(jsonPath("$.data.content[0].peer").value("otheruser"))
+                                .andExpect(jsonPath("$.data.content[0].unreadCount").value(2))
+                                .andExpect(jsonPath("$.data.nextCursor").value("nextCursor123"));
+        }
+
+        @Test
+        void testGetConversations_SizeIsClamped() throws Exception {
+                when(messageService.findConversations(eq("testuser"), eq(null), anyInt()))
+                                .thenReturn(new CursorResponse<>(List.of(), null, false));
+
+                mockMvc.perform(get("/api/messages/conversations")
+                                .principal(mockAuth)
+                                .param("size", "-1"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/messages/conversations")
+                                .principal(mockAuth)
+                                .param("size", "10000"))
+                                .andExpect(status().isOk());
+
+                verify(messageService).findConversations("testuser", null, 1);
+                verify(messageService).findConversations("testuser", null, 500);
+        }
+
         @Test
         void testGetUnreadCounts_Success() throws Exception {
                 Map<String, Long> counts = new HashMap<>();
@@ -0,0 +1,167 @@
+package com.web.backend.kafka.consumer;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.mapper.MessageMapper;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.ReadWatermarkRepository;
+import com.web.backend.service.util.WebSocketRoutingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseWriteBehindConsumerTest {
+
+    private static final String RETRY_TOPIC = "chat-messages.DLT";
+    private static final String TOPIC = "chat-messages";
+
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private ReadWatermarkRepository readWatermarkRepository;
+    @Mock
+    private MessageMapper messageMapper;
+    @Mock
+    private WebSocketRoutingService webSocketRoutingService;
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+    @Mock
+    private Acknowledgment acknowledgment;
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    private DatabaseWriteBehindConsumer writeBehindConsumer;
+
+    private ChatMessage message;
+
+    @BeforeEach
+    void setUp() {
+        WriteBehindBackpressure backpressure = new WriteBehindBackpressure(registry, new SimpleMeterRegistry(),
+                500, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(30), 3);
+        writeBehindConsumer = new DatabaseWriteBehindConsumer(messageRepository, readWatermarkRepository,
+                messageMapper, webSocketRoutingService, kafkaTemplate, backpressure);
+        ReflectionTestUtils.setField(writeBehindConsumer, "retryTopic", RETRY_TOPIC);
+
+        message = new ChatMessage();
+        message.setId("m1");
+        message.setConversationId("c1");
+        message.setSender("alice");
+        message.setRecipient("bob");
+        message.setMessageType(MessageType.CHAT);
+        message.setStatus(MessageStatus.SENT);
+        message.setTimestamp(LocalDateTime.now());
+    }
+
+    @Test
+    void testHandleDbPersistence_FailedWriteIsRedeliveredNotDeadLettered() {
+        when(messageRepository.bulkInsertIfAbsent(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        handle(List.of(message));
+
+        verify(acknowledgment).nack(0, Duration.ofSeconds(1));
+        verify(acknowledgment, never()).acknowledge();
+        verify(kafkaTemplate, never()).send(anyString(), any(), any());
+    }
+
+    @Test
+    void testHandleDbPersistence_BackoffGrowsWithConsecutiveFailures() {
+        when(messageRepository.bulkInsertIfAbsent(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        handle(List.of(message));
+        handle(List.of(message));
+
+        verify(acknowledgment).nack(0, Duration.ofSeconds(1));
+        verify(acknowledgment).nack(0, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void testHandleDbPersistence_BatchFailingEveryAttemptIsDeadLettered() {
+        when(messageRepository.bulkInsertIfAbsent(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            handle(List.of(message));
+        }
+
+        verify(acknowledgment, times(2)).nack(eq(0), any(Duration.class));
+        verify(kafkaTemplate).send(RETRY_TOPIC, "c1", message);
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void testHandleDbPersistence_PoisonBatchDeadLettersReactionsToo() {
+        ChatMessage reaction = new ChatMessage();
+        reaction.setId("m0");
+        reaction.setConversationId("c1");
+        reaction.setMessageType(MessageType.REACTION);
+        when(messageRepository.bulkInsertIfAbsent(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            handle(List.of(reaction, message));
+        }
+
+        verify(kafkaTemplate).send(RETRY_TOPIC, "c1", reaction);
+        verify(kafkaTemplate).send(RETRY_TOPIC, "c1", message);
+    }
+
+    @Test
+    void testHandleDbPersistence_AttemptsAreCountedPerBatchPosition() {
+        when(messageRepository.bulkInsertIfAbsent(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        // The same first record at a later offset is a different batch, e.g. a replayed copy
+        for (int attempt = 0; attempt < 3; attempt++) {
+            writeBehindConsumer.handleDbPersistence(List.of(message), List.of(TOPIC), List.of(0),
+                    List.of((long) attempt), acknowledgment, consumer);
+        }
+
+        verify(acknowledgment, times(3)).nack(eq(0), any(Duration.class));
+        verify(kafkaTemplate, never()).send(anyString(), any(), any());
+    }
+
+    @Test
+    void testHandleDbPersistence_SuccessAcknowledgesBatch() {
+        when(messageRepository.bulkInsertIfAbsent(anyList())).thenReturn(Set.of("m1"));
+        when(messageMapper.toResponse(message)).thenReturn(ChatMessageResponse.builder().id("m1").build());
+
+        handle(List.of(message));
+
+        verify(acknowledgment).acknowledge();
+        verify(acknowledgment, never()).nack(anyInt(), any(Duration.class));
+        verify(webSocketRoutingService).routeMessages(anyList());
+    }
+
+    private void handle(List<ChatMessage> messages) {
+        writeBehindConsumer.handleDbPersistence(messages, messages.stream().map(m -> TOPIC).toList(),
+                messages.stream().map(m -> 0).toList(),
+                LongStream.range(0, messages.size()).boxed().toList(), acknowledgment, consumer);
+    }
+}
@@ -0,0 +1,89 @@
+package com.web.backend.kafka.consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WriteBehindBackpressureTest {
+
+    private MessageListenerContainer container;
+
+    private WriteBehindBackpressure backpressure;
+
+    @BeforeEach
+    void setUp() {
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        container = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainer(WriteBehindBackpressure.LISTENER_ID_STRING)).thenReturn(container);
+        backpressure = new WriteBehindBackpressure(registry, new SimpleMeterRegistry(),
+                500, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(4), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backpressure.shutdown();
+    }
+
+    @Test
+    void testRecordFailure_BackoffDoublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(1), backpressure.recordFailure("b1", 10));
+        assertEquals(Duration.ofSeconds(2), backpressure.recordFailure("b1", 10));
+        assertEquals(Duration.ofSeconds(4), backpressure.recordFailure("b1", 10));
+        assertEquals(Duration.ofSeconds(4), backpressure.recordFailure("b1", 10));
+    }
+
+    @Test
+    void testRecordSuccess_ResetsTheBackoff() {
+        backpressure.recordFailure("b1", 10);
+        backpressure.recordFailure("b1", 10);
+
+        backpressure.recordSuccess("b1", 10);
+
+        assertEquals(Duration.ofSeconds(1), backpressure.recordFailure("b2", 10));
+    }
+
+    @Test
+    void testIsPoison_AfterMaxAttemptsOnly() {
+        backpressure.recordFailure("b1", 10);
+        backpressure.recordFailure("b1", 10);
+        assertFalse(backpressure.isPoison("b1"));
+
+        backpressure.recordFailure("b1", 10);
+        assertTrue(backpressure.isPoison("b1"));
+        assertFalse(backpressure.isPoison("b1"));
+    }
+
+    @Test
+    void testRecordFailure_HighErrorRatePausesTheListenerOnce() {
+        for (int i = 0; i < 6; i++) {
+            backpressure.recordFailure("b" + i, 10);
+        }
+
+        verify(container, times(1)).pause();
+    }
+
+    @Test
+    void testRecordSuccess_SlowMongoPausesTheListener() {
+        for (int i = 0; i < 10; i++) {
+            backpressure.recordSuccess("b" + i, 5_000);
+        }
+
+        verify(container, atLeastOnce()).pause();
+    }
+
+    @Test
+    void testRecordSuccess_FastMongoKeepsConsuming() {
+        backpressure.recordSuccess("b1", 10);
+
+        verify(container, never()).pause();
+    }
+}
@@ -0,0 +1,185 @@
+package com.web.backend.redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.web.backend.common.ContentType;
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.config.RedisConfig;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.RegisterData;
+
+class CompactRedisSerializerTest {
+
+    private GenericJackson2JsonRedisSerializer json;
+
+    private CompactRedisSerializer compact;
+
+    private ChatMessage message;
+
+    @BeforeEach
+    void setUp() {
+        json = RedisConfig.jsonSerializer();
+        compact = new CompactRedisSerializer(json, true, List.of(new ChatMessageCodec(), new RegisterDataCodec()));
+
+        message = new ChatMessage();
+        message.setId("65f1c0ffee0000000000abcd");
+        message.setConversationId("alice_bob");
+        message.setSender("alice");
+        message.setRecipient("bob");
+        message.setContent("Hello Bob, this is a reasonably sized chat message body.");
+        message.setContentType(ContentType.TEXT);
+        message.setMessageType(MessageType.CHAT);
+        message.setTimestamp(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_456_789));
+        message.setStatus(MessageStatus.SENT);
+        message.setEdited(true);
+        message.setReactions(new HashMap<>(Map.of("carol", "LIKE")));
+        message.setFileSize(2048L);
+        message.setLocalId("local-1");
+        message.setChangeSeq(42L);
+        message.setRevision(3L);
+    }
+
+    @Test
+    void testChatMessage_RoundTrip() {
+        byte[] bytes = compact.serialize(message);
+
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(message, compact.deserialize(bytes));
+    }
+
+    @Test
+    void testChatMessage_RoundTripWithNulls() {
+        ChatMessage empty = new ChatMessage();
+
+        assertEquals(empty, compact.deserialize(compact.serialize(empty)));
+    }
+
+    @Test
+    void testRegisterData_RoundTrip() {
+        RegisterData data = RegisterData.builder()
+                .username("alice").email("alice@example.com").password("$2a$10$hash").roleId(2L).otp("123456")
+                .build();
+
+        assertEquals(data, compact.deserialize(compact.serialize(data)));
+    }
+
+    @Test
+    void testScalars_StayJsonForLuaScripts() {
+        assertArrayEquals(json.serialize("65f1c0ffee"), compact.serialize("65f1c0ffee"));
+        assertArrayEquals(json.serialize(3L), compact.serialize(3L));
+        assertEquals(7, compact.deserialize("7".getBytes()));
+    }
+
+    @Test
+    void testLegacyJson_IsStillRead() {
+        assertEquals(message, compact.deserialize(json.serialize(message)));
+    }
+
+    @Test
+    void testCompactWritesDisabled_WritesJson() {
+        CompactRedisSerializer readOnly = new CompactRedisSerializer(json, false, List.of(new ChatMessageCodec()));
+
+        byte[] bytes = readOnly.serialize(message);
+
+        assertArrayEquals(json.serialize(message), bytes);
+        assertEquals(message, compact.deserialize(bytes));
+    }
+
+    @Test
+    void testVersion1Frame_IsStillRead() {
+        message.setChangeSeq(null);
+        message.setRevision(null);
+        byte[] current = compact.serialize(message);
+        // Version 1 ended before the trailing changeSeq and revision
+        byte[] legacy = Arrays.copyOf(current, current.length - 2);
+        legacy[1] = 0x01;
+
+        assertEquals(message, compact.deserialize(legacy));
+    }
+
+    @Test
+    void testVersion2Frame_IsStillRead() {
+        message.setRevision(null);
+        byte[] current = compact.serialize(message);
+        // Version 2 ended before the trailing revision
+        byte[] legacy = Arrays.copyOf(current, current.length - 1);
+        legacy[1] = 0x02;
+
+        assertEquals(message, compact.deserialize(legacy));
+    }
+
+    @Test
+    void testNewerFrame_IsReadWithoutItsTrailingFields() {
+        byte[] current = compact.serialize(message);
+        // A later version appended a field this node does not know
+        byte[] newer = Arrays.copyOf(current, current.length + 9);
+        newer[1] = (byte) (CompactRedisSerializer.FORMAT_VERSION + 1);
+        newer[current.length] = 1;
+
+        assertEquals(message, compact.deserialize(newer));
+    }
+
+    @Test
+    void testUnknownTag_IsRejected() {
+        byte[] bytes = compact.serialize(message);
+        bytes[2] = 0x7F;
+
+        assertThrows(SerializationException.class, () -> compact.deserialize(bytes));
+    }
+
+    @Test
+    void testChatMessage_IsSmallerThanJson() {
+        assertTrue(compact.serialize(message).length < json.serialize(message).length);
+    }
+
+    /**
+     * Run with {@code mvn test -Dtest=CompactRedisSerializerTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkChatMessage_JsonVsCompact() {
+        int iterations = 200_000;
+        byte[] jsonBytes = json.serialize(message);
+        byte[] compactBytes = compact.serialize(message);
+
+        long jsonEncode = 0;
+        long jsonDecode = 0;
+        long compactEncode = 0;
+        long compactDecode = 0;
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT and is discarded
+            jsonEncode = time(iterations, () -> json.serialize(message));
+            jsonDecode = time(iterations, () -> json.deserialize(jsonBytes));
+            compactEncode = time(iterations, () -> compact.serialize(message));
+            compactDecode = time(iterations, () -> compact.deserialize(compactBytes));
+        }
+
+        System.out.printf("ChatMessage bytes: json=%d, compact=%d (%.0f%%)%n", jsonBytes.length,
+                compactBytes.length, 100.0 * compactBytes.length / jsonBytes.length);
+        System.out.printf("Encode x%d: json=%d ms, compact=%d ms%n", iterations, jsonEncode / 1_000_000,
+                compactEncode / 1_000_000);
+        System.out.printf("Decode x%d: json=%d ms, compact=%d ms%n", iterations, jsonDecode / 1_000_000,
+                compactDecode / 1_000_000);
+    }
+
+    private static long time(int iterations, Runnable work) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,63 @@
+package com.web.backend.redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+class RedisScriptsTest {
+
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>("return 1", Long.class);
+
+    private RedisConnection connection;
+
+    private RedisScriptingCommands scriptingCommands;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(RedisConnection.class);
+        scriptingCommands = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+    }
+
+    @Test
+    void testEval_KnownScriptIsRunBySha() {
+        when(scriptingCommands.evalSha(eq(SCRIPT.getSha1()), eq(ReturnType.INTEGER), eq(1), any(byte[][].class)))
+                .thenReturn(1L);
+
+        Long result = RedisScripts.eval(connection, SCRIPT, 1, "key".getBytes());
+
+        assertEquals(1L, result);
+        verify(scriptingCommands, never()).eval(any(byte[].class), any(), anyInt(), any(byte[][].class));
+    }
+
+    @Test
+    void testEval_NoScriptFallsBackToTheBody() {
+        when(scriptingCommands.evalSha(anyString(), any(), anyInt(), any(byte[][].class)))
+                .thenThrow(new RedisSystemException("Error", new RuntimeException("NOSCRIPT No matching script")));
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(1), any(byte[][].class)))
+                .thenReturn(1L);
+
+        Long result = RedisScripts.eval(connection, SCRIPT, 1, "key".getBytes());
+
+        assertEquals(1L, result);
+    }
+
+    @Test
+    void testEval_OtherErrorsAreRethrown() {
+        when(scriptingCommands.evalSha(anyString(), any(), anyInt(), any(byte[][].class)))
+                .thenThrow(new InvalidDataAccessApiUsageException("WRONGTYPE"));
+
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> RedisScripts.eval(connection, SCRIPT, 1, "key".getBytes()));
+        verify(scriptingCommands, never()).eval(any(byte[].class), any(), anyInt(), any(byte[][].class));
+    }
+}
@@ -0,0 +1,141 @@
+package com.web.backend.redis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.web.backend.common.ContentType;
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.controller.response.ChatMessageResponse;
+import com.web.backend.controller.response.form.SocketResponse;
+
+class RedisWsFrameTest {
+
+    private static final String QUEUE_MESSAGES_STRING = "/queue/messages";
+
+    private ObjectMapper objectMapper;
+
+    private SocketResponse<ChatMessageResponse> payload;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        payload = SocketResponse.message(ChatMessageResponse.builder()
+                .id("65f1c0ffee")
+                .conversationId("alice_bob")
+                .sender("alice")
+                .recipient("bob")
+                .content("Hello Bob, this is a reasonably sized chat message body.")
+                .contentType(ContentType.TEXT)
+                .messageType(MessageType.CHAT)
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .status(MessageStatus.SENT)
+                .reactions(Map.of("carol", "LIKE"))
+                .localId("local-1")
+                .build());
+    }
+
+    @Test
+    void testEncodeDecode_RoundTrip() throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(payload);
+        List<RedisWsFrame> frames = List.of(
+                new RedisWsFrame("bob", QUEUE_MESSAGES_STRING, body),
+                new RedisWsFrame("user/with/slash", QUEUE_MESSAGES_STRING, new byte[0]));
+
+        byte[] envelope = RedisWsFrame.encode(frames);
+        assertTrue(RedisWsFrame.isEnvelope(envelope));
+
+        List<RedisWsFrame> decoded = RedisWsFrame.decode(envelope);
+        assertEquals(2, decoded.size());
+        assertEquals("bob", decoded.get(0).getRecipient());
+        assertEquals(QUEUE_MESSAGES_STRING, decoded.get(0).getDestination());
+        assertArrayEquals(body, decoded.get(0).getBody());
+        assertEquals("user/with/slash", decoded.get(1).getRecipient());
+        assertEquals(0, decoded.get(1).getBody().length);
+    }
+
+    @Test
+    void testIsEnvelope_JsonFrame() {
+        assertFalse(RedisWsFrame.isEnvelope("[{\"recipient\":\"bob\"}]".getBytes()));
+        assertFalse(RedisWsFrame.isEnvelope(new byte[0]));
+    }
+
+    @Test
+    void testBody_MatchesJsonPath() throws Exception {
+        // The old path re-serialized the untyped payload; the STOMP body must not change
+        String json = objectMapper.writeValueAsString(new RedisWsMessage("bob", QUEUE_MESSAGES_STRING, payload));
+        RedisWsMessage parsed = objectMapper.readValue(json, RedisWsMessage.class);
+        byte[] oldBody = objectMapper.writeValueAsBytes(parsed.getPayload());
+
+        byte[] envelope = RedisWsFrame.encode(List.of(
+                new RedisWsFrame("bob", QUEUE_MESSAGES_STRING, objectMapper.writeValueAsBytes(payload))));
+        byte[] newBody = RedisWsFrame.decode(envelope).get(0).getBody();
+
+        assertEquals(objectMapper.readTree(oldBody), objectMapper.readTree(newBody));
+    }
+
+    /**
+     * Run with {@code mvn test -Dtest=RedisWsFrameTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkForwarding_JsonVsBinary() throws Exception {
+        int batchSize = 64;
+        int iterations = 20_000;
+
+        long jsonNanos = 0;
+        long binaryNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT and is discarded
+            jsonNanos = time(iterations, () -> {
+                List<String> sent = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    sent.add(objectMapper.writeValueAsString(new RedisWsMessage("bob", QUEUE_MESSAGES_STRING, payload)));
+                }
+                for (String message : sent) {
+                    RedisWsMessage parsed = objectMapper.readValue(message, RedisWsMessage.class);
+                    objectMapper.writeValueAsBytes(parsed.getPayload());
+                }
+            });
+            binaryNanos = time(iterations, () -> {
+                List<RedisWsFrame> frames = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    frames.add(new RedisWsFrame("bob", QUEUE_MESSAGES_STRING, objectMapper.writeValueAsBytes(payload)));
+                }
+                for (RedisWsFrame frame : RedisWsFrame.decode(RedisWsFrame.encode(frames))) {
+                    frame.getBody();
+                }
+            });
+        }
+
+        System.out.printf("Forwarding %d x %d deliveries: json=%d ms, binary=%d ms (%.1fx)%n",
+                iterations, batchSize, jsonNanos / 1_000_000, binaryNanos / 1_000_000,
+                (double) jsonNanos / binaryNanos);
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static long time(int iterations, Work work) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,165 @@
+package com.web.backend.repository;
+
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
+import com.web.backend.repository.ConversationRepositoryCustom.InboxUpdate;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@DataMongoTest
+class ConversationRepositoryTest {
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0").withExposedPorts(27017);
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @AfterEach
+    void cleanUp() {
+        conversationRepository.deleteAll();
+        mongoTemplate.dropCollection(ChatMessage.class);
+    }
+
+    @Test
+    void testApplyInboxUpdates_CreatesEntryWithPreview() {
+        ChatMessage msg = message("alice", "bob", "hello", start);
+
+        conversationRepository.applyInboxUpdates(List.of(newMessages(msg, 0, 10)));
+
+        Conversation conversation = conversationRepository.findById("alice_bob").orElseThrow();
+        assertThat(conversation.getParticipants()).containsExactly("alice", "bob");
+        assertThat(conversation.getLastMessageId()).isEqualTo(msg.getId());
+        assertThat(conversation.getLastContent()).isEqualTo("hello");
+    }
+
+    @Test
+    void testApplyInboxUpdates_RedeliveredBatchDoesNotMovePreviewBack() {
+        InboxUpdate older = newMessages(message("alice", "bob", "hello", start), 0, 10);
+        InboxUpdate newer = newMessages(message("alice", "bob", "again", start.plusMinutes(1)), 0, 11);
+
+        conversationRepository.applyInboxUpdates(List.of(older, newer));
+        conversationRepository.applyInboxUpdates(List.of(older));
+
+        assertThat(conversationRepository.findById("alice_bob").orElseThrow().getLastContent()).isEqualTo("again");
+    }
+
+    @Test
+    void testApplyInboxUpdates_EditRefreshesPreview() {
+        ChatMessage msg = message("alice", "bob", "hello", start);
+        conversationRepository.applyInboxUpdates(List.of(newMessages(msg, 0, 10)));
+
+        ChatMessage edited = message("alice", "bob", "hello, edited", start);
+        edited.setId(msg.getId());
+        edited.setEdited(true);
+        conversationRepository.applyInboxUpdates(List.of(new InboxUpdate("alice_bob", List.of("alice", "bob"), 0, 11,
+                null, List.of(edited))));
+
+        Conversation conversation = conversationRepository.findById("alice_bob").orElseThrow();
+        assertThat(conversation.getLastContent()).isEqualTo("hello, edited");
+    }
+
+    @Test
+    void testBackfillFromMessages_CreatesMissingEntriesFromTheLastChatMessage() {
+        mongoTemplate.insert(message("alice", "bob", "old", start));
+        ChatMessage reply = message("bob", "alice", "latest", start.plusMinutes(1));
+        reply.setConversationId("alice_bob");
+        mongoTemplate.insert(reply);
+        ChatMessage receipt = message("alice", "bob", null, start.plusMinutes(2));
+        receipt.setMessageType(MessageType.STATUS);
+        mongoTemplate.insert(receipt);
+        mongoTemplate.insert(message("alice", "carol", "hi", start));
+
+        long created = conversationRepository.backfillFromMessages(1);
+
+        assertThat(created).isEqualTo(2);
+        Conversation conversation = conversationRepository.findById("alice_bob").orElseThrow();
+        assertThat(conversation.getLastContent()).isEqualTo("latest");
+        assertThat(conversation.getLastSender()).isEqualTo("bob");
+        assertThat(conversation.getParticipants()).containsExactly("alice", "bob");
+        assertThat(conversationRepository.findInbox("carol", PageRequest.of(0, 10))).hasSize(1);
+    }
+
+    @Test
+    void testBackfillFromMessages_SelfChatHasOneParticipant() {
+        mongoTemplate.insert(message("alice", "alice", "note", start));
+
+        conversationRepository.backfillFromMessages(100);
+
+        assertThat(conversationRepository.findById("alice_alice").orElseThrow().getParticipants())
+                .containsExactly("alice");
+    }
+
+    @Test
+    void testBackfillFromMessages_LeavesLiveEntriesUntouched() {
+        ChatMessage live = message("alice", "bob", "live", start.plusMinutes(5));
+        conversationRepository.applyInboxUpdates(List.of(newMessages(live, 0, 10)));
+        mongoTemplate.insert(message("alice", "bob", "old", start));
+
+        long created = conversationRepository.backfillFromMessages(100);
+
+        assertThat(created).isZero();
+        assertThat(conversationRepository.findById("alice_bob").orElseThrow().getLastContent()).isEqualTo("live");
+    }
+
+    @Test
+    void testFindInbox_PagesByRecency() {
+        conversationRepository.applyInboxUpdates(List.of(
+                newMessages(message("alice", "bob", "1", start), 0, 1),
+                newMessages(message("alice", "carol", "2", start.plusMinutes(1)), 1, 1),
+                newMessages(message("bob", "carol", "3", start.plusMinutes(2)), 2, 1)));
+
+        PageRequest page = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "lastTimestamp", "id"));
+        List<Conversation> first = conversationRepository.findInbox("alice", page);
+        List<Conversation> second = conversationRepository.findInboxBefore("alice", first.get(0).getLastTimestamp(),
+                first.get(0).getId(), page);
+
+        assertThat(first).extracting(Conversation::getId).containsExactly("alice_carol");
+        assertThat(second).extracting(Conversation::getId).containsExactly("alice_bob");
+    }
+
+    private InboxUpdate newMessages(ChatMessage newest, int partition, long offset) {
+        return new InboxUpdate(newest.getConversationId(), List.of(newest.getSender(), newest.getRecipient()),
+                partition, offset, newest, List.of());
+    }
+
+    private ChatMessage message(String sender, String recipient, String content, LocalDateTime timestamp) {
+        ChatMessage msg = new ChatMessage();
+        msg.setId(new ObjectId().toHexString());
+        msg.setConversationId(sender + "_" + recipient);
+        msg.setMessageType(MessageType.CHAT);
+        msg.setSender(sender);
+        msg.setRecipient(recipient);
+        msg.setContent(content);
+        msg.setTimestamp(timestamp);
+        return msg;
+    }
+}
@@ -1,12 +1,18 @@
 package com.web.backend.repository;
 
 import com.web.backend.model.ChatMessage;
+import com.web.backend.model.ConversationSequence;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.MongoDBContainer;
@@ -14,7 +20,11 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.web.backend.common.MessageStatus;
 import com.web.backend.common.MessageType;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -40,6 +50,7 @@ import static org.assertj.core.api.Assertions.assertThat;
     @AfterEach
     void cleanUp() {
         messageRepository.deleteAll();
+        mongoTemplate.dropCollection(ConversationSequence.class);
     }
 
     @Test
@@ -64,25 +75,191 @@ import static org.assertj.core.api.Assertions.assertThat;
     }
 
     @Test
-    void testFindByConversationIdAndTimestampBefore() {
-        LocalDateTime now = LocalDateTime.now();
+    void testFindByConversationIdBefore_PagesThroughTiesExactly() {
+        LocalDateTime sameTime = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 5; i++) {
+            ChatMessage msg = new ChatMessage();
+            msg.setId(new ObjectId().toHexString());
+            msg.setConversationId("conv-ties");
+            msg.setMessageType(MessageType.CHAT);
+            msg.setContent("tie " + i);
+            msg.setTimestamp(sameTime);
+            mongoTemplate.save(msg);
+        }
 
-        ChatMessage msg1 = new ChatMessage();
-        msg1.setConversationId("conv2");
-        msg1.setMessageType(MessageType.CHAT);
-        msg1.setContent("hello 1");
-        msg1.setTimestamp(now.minusMinutes(10));
-        mongoTemplate.save(msg1);
+        PageRequest page = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "timestamp", "id"));
+        List<ChatMessage> seen = new ArrayList<>(messageRepository.findByConversationId("conv-ties", page));
+        while (seen.size() < 5) {
+            ChatMessage last = seen.get(seen.size() - 1);
+            List<ChatMessage> next = messageRepository.findByConversationIdBefore("conv-ties", last.getTimestamp(),
+                    new ObjectId(last.getId()), page);
+            assertThat(next).isNotEmpty();
+            seen.addAll(next);
+        }
 
-        ChatMessage msg2 = new ChatMessage();
-        msg2.setConversationId("conv2");
-        msg2.setMessageType(MessageType.CHAT);
-        msg2.setContent("hello 2");
-        msg2.setTimestamp(now.minusMinutes(5));
-        mongoTemplate.save(msg2);
+        assertThat(seen).extracting(ChatMessage::getId).doesNotHaveDuplicates().hasSize(5);
+        assertThat(messageRepository.findByConversationIdBefore("conv-ties", sameTime,
+                new ObjectId(seen.get(4).getId()), page)).isEmpty();
+    }
+
+    @Test
+    void testBulkInsertIfAbsent_IsIdempotent() {
+        List<ChatMessage> batch = buildBatch("conv3", 3);
 
-        List<ChatMessage> messages = messageRepository.findByConversationIdAndTimestampBefore("conv2", now.minusMinutes(2), PageRequest.of(0, 10));
+        Set<String> first = messageRepository.bulkInsertIfAbsent(batch);
+        Set<String> second = messageRepository.bulkInsertIfAbsent(batch);
 
-        assertThat(messages).hasSize(2);
+        assertThat(first).hasSize(3);
+        assertThat(second).containsExactlyInAnyOrderElementsOf(first);
+        assertThat(messageRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void testBulkInsertIfAbsent_KeepsExistingDocument() {
+        ChatMessage original = buildBatch("conv4", 1).get(0);
+        messageRepository.bulkInsertIfAbsent(List.of(original));
+
+        ChatMessage replay = buildBatch("conv4", 1).get(0);
+        replay.setId(original.getId());
+        replay.setContent("replayed");
+        messageRepository.bulkInsertIfAbsent(List.of(replay));
+
+        assertThat(messageRepository.findById(original.getId()))
+                .hasValueSatisfying(m -> assertThat(m.getContent()).isEqualTo(original.getContent()));
+    }
+
+    @Test
+    void testBulkInsertIfAbsent_IsolatesFailedDocuments() {
+        IndexOperations indexOps = mongoTemplate.indexOps(ChatMessage.class);
+        String indexName = indexOps.ensureIndex(new Index("content", Sort.Direction.ASC).unique());
+        try {
+            List<ChatMessage> batch = buildBatch("conv5", 3);
+            batch.get(2).setContent(batch.get(0).getContent());
+
+            Set<String> persisted = messageRepository.bulkInsertIfAbsent(batch);
+
+            assertThat(persisted).containsExactly(batch.get(0).getId(), batch.get(1).getId());
+            assertThat(messageRepository.count()).isEqualTo(2);
+        } finally {
+            indexOps.dropIndex(indexName);
+        }
+    }
+
+    @Test
+    void testChangeSeqs_ReserveCommitAndFind() {
+        assertThat(messageRepository.reserveChangeSeqs(Map.of("conv6", 3))).containsEntry("conv6", 1L);
+        assertThat(messageRepository.reserveChangeSeqs(Map.of("conv6", 2, "conv7", 1)))
+                .containsEntry("conv6", 4L)
+                .containsEntry("conv7", 1L);
+        assertThat(messageRepository.findCommittedChangeSeq("conv6")).isZero();
+
+        messageRepository.commitChangeSeqs(Map.of("conv6", 5L));
+        messageRepository.commitChangeSeqs(Map.of("conv6", 3L));
+
+        assertThat(messageRepository.findCommittedChangeSeq("conv6")).isEqualTo(5L);
+    }
+
+    @Test
+    void testFindChangesBetween_IncludesStampedMutations() {
+        List<ChatMessage> batch = buildBatch("conv8", 3);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setChangeSeq(i + 1L);
+        }
+        messageRepository.bulkInsertIfAbsent(batch);
+        // The first message is edited later on
+        messageRepository.stampChangeSeqs(Map.of(batch.get(0).getId(), 4L));
+
+        PageRequest page = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "changeSeq"));
+        List<ChatMessage> changes = messageRepository.findChangesBetween("conv8", 1L, 4L, page);
+
+        assertThat(changes).extracting(ChatMessage::getId)
+                .containsExactly(batch.get(1).getId(), batch.get(2).getId(), batch.get(0).getId());
+    }
+
+    @Test
+    void testMarkReadUpTo_StopsAtWatermark() {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<ChatMessage> batch = buildBatch("alice_bob", 3);
+        for (int i = 0; i < batch.size(); i++) {
+            ChatMessage msg = batch.get(i);
+            msg.setSender("alice");
+            msg.setRecipient("bob");
+            msg.setStatus(MessageStatus.SENT);
+            msg.setTimestamp(start.plusMinutes(i));
+        }
+        messageRepository.bulkInsertIfAbsent(batch);
+
+        assertThat(messageRepository.markReadUpTo("bob", "alice", start.plusMinutes(1))).isEqualTo(2L);
+        assertThat(messageRepository.markReadUpTo("bob", "alice", start.plusMinutes(1))).isZero();
+
+        assertThat(messageRepository.findById(batch.get(2).getId()).orElseThrow().getStatus())
+                .isEqualTo(MessageStatus.SENT);
+    }
+
+    @Test
+    void testEditContent_OnlyMatchesOwnLiveMessage() {
+        ChatMessage msg = buildBatch("alice_bob", 1).get(0);
+        msg.setSender("alice");
+        msg.setReactions(Map.of("bob", "LIKE"));
+        messageRepository.bulkInsertIfAbsent(List.of(msg));
+
+        assertThat(messageRepository.editContent(msg.getId(), "bob", "hijacked")).isNull();
+
+        ChatMessage edited = messageRepository.editContent(msg.getId(), "alice", "edited");
+        assertThat(edited.getContent()).isEqualTo("edited");
+        assertThat(edited.isEdited()).isTrue();
+        assertThat(edited.getRevision()).isEqualTo(1L);
+        // Fields the edit does not own are left as they are
+        assertThat(edited.getReactions()).containsEntry("bob", "LIKE");
+    }
+
+    @Test
+    void testRevoke_ClearsContentAndRejectsLaterEdits() {
+        ChatMessage msg = buildBatch("alice_bob", 1).get(0);
+        msg.setSender("alice");
+        msg.setFileUrl("https://files/1");
+        msg.setReactions(Map.of("bob", "LIKE"));
+        messageRepository.bulkInsertIfAbsent(List.of(msg));
+
+        ChatMessage revoked = messageRepository.revoke(msg.getId(), "alice");
+
+        assertThat(revoked.isDeleted()).isTrue();
+        assertThat(revoked.getContent()).isEmpty();
+        assertThat(revoked.getFileUrl()).isNull();
+        assertThat(revoked.getReactions()).isNull();
+        assertThat(messageRepository.revoke(msg.getId(), "alice")).isNull();
+        assertThat(messageRepository.editContent(msg.getId(), "alice", "back")).isNull();
+    }
+
+    /**
+     * Run with {@code mvn test -Dtest=MessageRepositoryTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBulkInsertIfAbsent() {
+        messageRepository.bulkInsertIfAbsent(buildBatch("warmup", 1000));
+        for (int batchSize : new int[] { 100, 500, 1000 }) {
+            int rounds = 10;
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                messageRepository.bulkInsertIfAbsent(buildBatch("bench-" + batchSize, batchSize));
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("bulkInsertIfAbsent batch=%d: %.0f docs/s%n", batchSize, rounds * batchSize / seconds);
+        }
+    }
+
+    private List<ChatMessage> buildBatch(String conversationId, int size) {
+        List<ChatMessage> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ChatMessage msg = new ChatMessage();
+            msg.setId(new ObjectId().toHexString());
+            msg.setConversationId(conversationId);
+            msg.setMessageType(MessageType.CHAT);
+            msg.setContent("message " + msg.getId());
+            msg.setTimestamp(LocalDateTime.now());
+            batch.add(msg);
+        }
+        return batch;
     }
 }
@@ -0,0 +1,61 @@
+package com.web.backend.repository;
+
+import com.web.backend.model.ReadWatermark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@DataMongoTest
+class ReadWatermarkRepositoryTest {
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6.0").withExposedPorts(27017);
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private ReadWatermarkRepository readWatermarkRepository;
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @AfterEach
+    void cleanUp() {
+        readWatermarkRepository.deleteAll();
+    }
+
+    @Test
+    void testAdvance_CreatesWatermark() {
+        assertThat(readWatermarkRepository.advance("alice_bob", "bob", "m1", start)).isTrue();
+
+        ReadWatermark watermark = readWatermarkRepository.findById(ReadWatermark.idOf("alice_bob", "bob")).orElseThrow();
+        assertThat(watermark.getConversationId()).isEqualTo("alice_bob");
+        assertThat(watermark.getReader()).isEqualTo("bob");
+        assertThat(watermark.getLastReadMessageId()).isEqualTo("m1");
+        assertThat(watermark.getLastReadTimestamp()).isEqualTo(start);
+    }
+
+    @Test
+    void testAdvance_NeverMovesBackwards() {
+        readWatermarkRepository.advance("alice_bob", "bob", "m2", start.plusMinutes(1));
+
+        assertThat(readWatermarkRepository.advance("alice_bob", "bob", "m1", start)).isFalse();
+        assertThat(readWatermarkRepository.advance("alice_bob", "bob", "m3", start.plusMinutes(2))).isTrue();
+
+        assertThat(readWatermarkRepository.findById(ReadWatermark.idOf("alice_bob", "bob")).orElseThrow()
+                .getLastReadMessageId()).isEqualTo("m3");
+    }
+}
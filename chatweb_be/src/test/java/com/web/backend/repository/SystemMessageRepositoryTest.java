@@ -1,11 +1,13 @@
 package com.web.backend.repository;
 
 import com.web.backend.model.SystemMessage;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -14,6 +16,8 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,22 +65,29 @@ import static org.assertj.core.api.Assertions.assertThat;
     }
 
     @Test
-    void testFindMessage_Success() {
-        SystemMessage msg1 = new SystemMessage();
-        msg1.setSender("sys1");
-        msg1.setContent("hello 1");
-        Instant now = Instant.now();
-        msg1.setTimestamp(now.minusSeconds(120));
-        mongoTemplate.save(msg1);
-
-        SystemMessage msg2 = new SystemMessage();
-        msg2.setSender("sys2");
-        msg2.setContent("hello 2");
-        msg2.setTimestamp(now.minusSeconds(60));
-        mongoTemplate.save(msg2);
-
-        List<SystemMessage> messages = systemMessageRepository.findMessage(now.minusSeconds(30), PageRequest.of(0, 10));
-
-        assertThat(messages).hasSize(2);
+    void testFindMessageBefore_PagesThroughTiesExactly() {
+        Instant sameTime = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 0; i < 5; i++) {
+            SystemMessage msg = new SystemMessage();
+            msg.setId(new ObjectId().toHexString());
+            msg.setSender("sys");
+            msg.setContent("tie " + i);
+            msg.setTimestamp(sameTime);
+            mongoTemplate.save(msg);
+        }
+
+        PageRequest page = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "timestamp", "id"));
+        List<SystemMessage> seen = new ArrayList<>(systemMessageRepository.findInitialMessage(page));
+        while (seen.size() < 5) {
+            SystemMessage last = seen.get(seen.size() - 1);
+            List<SystemMessage> next = systemMessageRepository.findMessageBefore(last.getTimestamp(),
+                    new ObjectId(last.getId()), page);
+            assertThat(next).isNotEmpty();
+            seen.addAll(next);
+        }
+
+        assertThat(seen).extracting(SystemMessage::getId).doesNotHaveDuplicates().hasSize(5);
+        assertThat(systemMessageRepository.findMessageBefore(sameTime,
+                new ObjectId(seen.get(4).getId()), page)).isEmpty();
     }
 }
@@ -42,6 +42,7 @@ import com.web.backend.model.UserEntity;
 import com.web.backend.repository.MessageRepository;
 import com.web.backend.repository.RoleRepository;
 import com.web.backend.repository.UserRepository;
+import com.web.backend.service.util.SendAuthorizationCache;
 import com.web.backend.service.impl.AdminServiceImpl;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,6 +64,8 @@ class AdminServiceTest {
     private RedisTemplate<String, Object> redisTemplate;
     @Mock
     private ZSetOperations<String, Object> zSetOperations;
+    @Mock
+    private SendAuthorizationCache sendAuthorizationCache;
 
     @InjectMocks
     private AdminServiceImpl adminService;
@@ -177,6 +180,7 @@ class AdminServiceTest {
         adminService.lockUser("testuser");
         assertEquals(UserStatus.LOCKED, activeUser.getUserStatus());
         assertFalse(activeUser.isOnline());
+        verify(sendAuthorizationCache).evictUser("testuser");
     }
 
     @Test
@@ -187,6 +191,7 @@ class AdminServiceTest {
 
         adminService.unlockUser("testuser");
         assertEquals(UserStatus.ACTIVE, activeUser.getUserStatus());
+        verify(sendAuthorizationCache).evictUser("testuser");
     }
 
     @Test
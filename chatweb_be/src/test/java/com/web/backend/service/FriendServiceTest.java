@@ -36,6 +36,7 @@ import com.web.backend.model.FriendshipEntity;
 import com.web.backend.model.UserEntity;
 import com.web.backend.repository.FriendshipRepository;
 import com.web.backend.repository.UserRepository;
+import com.web.backend.service.util.SendAuthorizationCache;
 import com.web.backend.service.impl.FriendServiceImpl;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +54,8 @@ class FriendServiceTest {
     private UserMapper userMapper;
     @Mock
     private SetOperations<String, Object> setOperations;
+    @Mock
+    private SendAuthorizationCache sendAuthorizationCache;
 
     @InjectMocks
     private FriendServiceImpl friendService;
@@ -124,6 +127,7 @@ class FriendServiceTest {
         verify(friendshipRepository).save(pendingReq);
         verify(setOperations).add("friends:userA", "userB");
         verify(setOperations).add("friends:userB", "userA");
+        verify(sendAuthorizationCache).evictFriendship("userA", "userB");
         verify(eventPublisher).publishEvent(any(FriendPayload.class));
     }
 
@@ -160,6 +164,7 @@ class FriendServiceTest {
         verify(friendshipRepository).delete(f);
         verify(setOperations).remove("friends:userA", "userB");
         verify(setOperations).remove("friends:userB", "userA");
+        verify(sendAuthorizationCache).evictFriendship("userA", "userB");
         verify(eventPublisher).publishEvent(any(FriendPayload.class));
     }
 
@@ -174,6 +179,7 @@ class FriendServiceTest {
 
         verify(friendshipRepository).save(argThat(f -> f.getStatus() == FriendshipStatus.BLOCKED));
         verify(setOperations).remove("friends:userA", "userB");
+        verify(sendAuthorizationCache).evictFriendship("userA", "userB");
     }
 
     @Test
@@ -6,6 +6,8 @@ import static org.mockito.Mockito.*;
 
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,9 +18,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.redis.core.ListOperations;
-import org.springframework.data.redis.core.HashOperations;
-import org.springframework.data.redis.core.ZSetOperations;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.support.SendResult;
 
 import com.web.backend.common.UserStatus;
@@ -28,28 +27,38 @@ import com.web.backend.controller.request.EditMessageRequest;
 import com.web.backend.controller.request.RevokeMessageRequest;
 import com.web.backend.exception.WebSocketErrorHandler;
 import com.web.backend.exception.custom.AccessForbiddenException;
+import com.web.backend.exception.custom.InvalidDataException;
 import com.web.backend.exception.custom.ResourceNotFoundException;
 import com.web.backend.mapper.MessageMapper;
 import com.web.backend.model.ChatMessage;
+import com.web.backend.model.Conversation;
 import com.web.backend.model.SystemMessage;
 import com.web.backend.model.UserEntity;
+import com.web.backend.repository.ConversationRepository;
 import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.ReadWatermarkRepository;
 import com.web.backend.repository.SystemMessageRepository;
 import com.web.backend.repository.UserRepository;
-import com.web.backend.repository.projection.UnreadCountProjection;
 import com.web.backend.service.impl.MessageServiceImpl;
+import com.web.backend.service.util.ConversationWindowCache;
+import com.web.backend.service.util.CursorCodec;
+import com.web.backend.service.util.RecentMessageCache;
+import com.web.backend.service.util.SendAuthorizationCache;
+import com.web.backend.service.util.UnreadCounterService;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
 import com.web.backend.common.MessageStatus;
 import com.web.backend.controller.response.ChatMessageResponse;
 import com.web.backend.controller.response.CursorResponse;
+import com.web.backend.controller.response.ConversationResponse;
 import com.web.backend.controller.response.MessageSystemResponse;
+import com.web.backend.controller.response.SyncResponse;
 import com.web.backend.controller.response.UnreadCountsResponse;
 
 @ExtendWith(MockitoExtension.class)
@@ -58,14 +67,16 @@ class MessageServiceTest {
     @Mock
     private MessageRepository messageRepository;
     @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private ReadWatermarkRepository readWatermarkRepository;
+    @Mock
     private UserRepository userRepository;
     @Mock
     private SystemMessageRepository systemMessageRepository;
     @Mock
     private FriendService friendService;
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
-    @Mock
     private MongoTemplate mongoTemplate;
     @Mock
     private MessageMapper messageMapper;
@@ -77,11 +88,19 @@ class MessageServiceTest {
     private WebSocketErrorHandler webSocketErrorHandler;
 
     @Mock
-    private ListOperations<String, Object> listOperations;
+    private SendAuthorizationCache sendAuthorizationCache;
+
     @Mock
-    private HashOperations<String, Object, Object> hashOperations;
+    private RecentMessageCache recentMessageCache;
+
+    @Mock
+    private ConversationWindowCache conversationWindowCache;
+
     @Mock
-    private ZSetOperations<String, Object> zSetOperations;
+    private UnreadCounterService unreadCounterService;
+
+    @Mock
+    private ListOperations<String, Object> listOperations;
 
     @InjectMocks
     private MessageServiceImpl messageService;
@@ -98,11 +117,19 @@ class MessageServiceTest {
         recipientUser = new UserEntity();
         recipientUser.setUsername("recipient");
         recipientUser.setUserStatus(UserStatus.ACTIVE);
+
+        // Cache misses by default: every lookup falls through to the loader
+        lenient().when(sendAuthorizationCache.getRecipientStatus(anyString(), any()))
+                .thenAnswer(inv -> inv.<Supplier<UserStatus>>getArgument(1).get());
+        lenient().when(sendAuthorizationCache.isFriend(anyString(), anyString(), any()))
+                .thenAnswer(inv -> inv.<BooleanSupplier>getArgument(2).getAsBoolean());
+        lenient().when(conversationWindowCache.firstPage(anyString(), anyInt(), any()))
+                .thenAnswer(inv -> inv.<Supplier<List<ChatMessage>>>getArgument(2).get());
     }
 
     @Test
     void testSendPrivateMessage_RecipientNotFound() {
-        when(userRepository.findByUsername("recipient")).thenReturn(Optional.empty());
+        when(userRepository.findUserStatusByUsername("recipient")).thenReturn(Optional.empty());
 
         ChatMessageRequest request = new ChatMessageRequest();
         request.setRecipient("recipient");
@@ -113,7 +140,7 @@ class MessageServiceTest {
     @Test
     void testSendPrivateMessage_RecipientInactive() {
         recipientUser.setUserStatus(UserStatus.INACTIVE);
-        when(userRepository.findByUsername("recipient")).thenReturn(Optional.of(recipientUser));
+        when(userRepository.findUserStatusByUsername("recipient")).thenReturn(Optional.of(recipientUser.getUserStatus()));
 
         ChatMessageRequest request = new ChatMessageRequest();
         request.setRecipient("recipient");
@@ -123,7 +150,7 @@ class MessageServiceTest {
 
     @Test
     void testSendPrivateMessage_NotFriends() {
-        when(userRepository.findByUsername("recipient")).thenReturn(Optional.of(recipientUser));
+        when(userRepository.findUserStatusByUsername("recipient")).thenReturn(Optional.of(recipientUser.getUserStatus()));
         when(friendService.isFriend("sender", "recipient")).thenReturn(false);
 
         ChatMessageRequest request = new ChatMessageRequest();
@@ -134,7 +161,7 @@ class MessageServiceTest {
 
     @Test
     void testSendPrivateMessage_Success() {
-        when(userRepository.findByUsername("recipient")).thenReturn(Optional.of(recipientUser));
+        when(userRepository.findUserStatusByUsername("recipient")).thenReturn(Optional.of(recipientUser.getUserStatus()));
         when(friendService.isFriend("sender", "recipient")).thenReturn(true);
 
         ChatMessageRequest request = new ChatMessageRequest();
@@ -150,15 +177,12 @@ class MessageServiceTest {
                 .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
         when(chatProducer.sendChatMessage(any())).thenReturn(future);
 
-        // Mock Redis operations
-        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
-        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
-
         // Act
         messageService.sendPrivateMessage("sender", request);
 
         // Assert
         verify(chatProducer).sendChatMessage(chatMessage);
+        assertEquals(0, chatMessage.getTimestamp().getNano() % 1_000_000);
 
 
     }
@@ -205,19 +229,22 @@ class MessageServiceTest {
 
         when(friendService.isFriend("sender", "recipient")).thenReturn(true);
 
+        ChatMessage reacted = new ChatMessage();
+        reacted.setId("msg123");
+        reacted.setRevision(1L);
+        when(mongoTemplate.findAndModify(any(org.springframework.data.mongodb.core.query.Query.class),
+                any(org.springframework.data.mongodb.core.query.Update.class),
+                any(org.springframework.data.mongodb.core.FindAndModifyOptions.class),
+                eq(ChatMessage.class))).thenReturn(reacted);
+
         CompletableFuture<SendResult<String, Object>> future = CompletableFuture
                 .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
         when(chatProducer.sendReaction(any())).thenReturn(future);
 
         messageService.reactToMessage("sender", request);
 
-        // Verify MongoDB update
-        verify(mongoTemplate).updateFirst(any(org.springframework.data.mongodb.core.query.Query.class),
-                any(org.springframework.data.mongodb.core.query.Update.class),
-                eq(ChatMessage.class));
-
-        // Verify Redis updated
-        verify(redisTemplate, atLeastOnce()).opsForHash();
+        // Verify Redis patched with the stored state
+        verify(recentMessageCache).patch(reacted);
 
         // Verify Kafka push
         verify(chatProducer).sendReaction(any(ChatMessage.class));
@@ -233,20 +260,25 @@ class MessageServiceTest {
         request.setMessageId("msg1");
         request.setNewContent("Edited text");
 
-        ChatMessage message = new ChatMessage();
-        message.setId("msg1");
-        message.setSender("sender");
+        ChatMessage edited = new ChatMessage();
+        edited.setId("msg1");
+        edited.setSender("sender");
+        edited.setConversationId("recipient_sender");
+        edited.setContent("Edited text");
+        edited.setEdited(true);
+        edited.setRevision(1L);
 
-        when(messageRepository.findById("msg1")).thenReturn(Optional.of(message));
+        when(messageRepository.editContent("msg1", "sender", "Edited text")).thenReturn(edited);
         CompletableFuture<SendResult<String, Object>> future = CompletableFuture
                 .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
         when(chatProducer.sendEditMessage(any(ChatMessage.class))).thenReturn(future);
 
         messageService.editMessage("sender", request);
 
-        assertTrue(message.isEdited());
-        assertEquals("Edited text", message.getContent());
-        verify(chatProducer).sendEditMessage(message);
+        verify(messageRepository, never()).save(any());
+        verify(recentMessageCache).patch(edited);
+        verify(chatProducer).sendEditMessage(edited);
+        verify(conversationWindowCache).invalidate("recipient_sender");
     }
 
     @Test
@@ -260,30 +292,46 @@ class MessageServiceTest {
         when(messageRepository.findById("msg1")).thenReturn(Optional.of(message));
 
         assertThrows(AccessForbiddenException.class, () -> messageService.editMessage("sender", request));
+        verifyNoInteractions(chatProducer);
     }
 
     @Test
-    void testRevokeMessage_Success() {
-        RevokeMessageRequest request = new RevokeMessageRequest();
+    void testEditMessage_RevokedMessageIsNotFound() {
+        EditMessageRequest request = new EditMessageRequest();
         request.setMessageId("msg1");
 
         ChatMessage message = new ChatMessage();
-        message.setId("msg1");
         message.setSender("sender");
-        message.setContent("Secret");
-        message.setFileUrl("url");
+        message.setDeleted(true);
 
         when(messageRepository.findById("msg1")).thenReturn(Optional.of(message));
+
+        assertThrows(ResourceNotFoundException.class, () -> messageService.editMessage("sender", request));
+    }
+
+    @Test
+    void testRevokeMessage_Success() {
+        RevokeMessageRequest request = new RevokeMessageRequest();
+        request.setMessageId("msg1");
+
+        ChatMessage revoked = new ChatMessage();
+        revoked.setId("msg1");
+        revoked.setSender("sender");
+        revoked.setConversationId("recipient_sender");
+        revoked.setContent("");
+        revoked.setDeleted(true);
+        revoked.setRevision(2L);
+
+        when(messageRepository.revoke("msg1", "sender")).thenReturn(revoked);
         CompletableFuture<SendResult<String, Object>> future = CompletableFuture
                 .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
         when(chatProducer.sendRevokeMessage(any(ChatMessage.class))).thenReturn(future);
 
         messageService.revokeMessage("sender", request);
 
-        assertTrue(message.isDeleted());
-        assertEquals("", message.getContent());
-        assertNull(message.getFileUrl());
-        verify(chatProducer).sendRevokeMessage(message);
+        verify(messageRepository, never()).findById(anyString());
+        verify(recentMessageCache).patch(revoked);
+        verify(chatProducer).sendRevokeMessage(revoked);
     }
 
     @Test
@@ -316,12 +364,15 @@ class MessageServiceTest {
 
     @Test
     void testMarkMessagesAsRead_Success() {
-        ChatMessage msg1 = new ChatMessage();
-        msg1.setStatus(MessageStatus.SENT);
-
-        when(messageRepository.findUnreadMessagesFromSender("recipient", "sender"))
-                .thenReturn(List.of(msg1));
-        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        ChatMessage newest = new ChatMessage();
+        newest.setId("msg9");
+        newest.setTimestamp(LocalDateTime.now().withNano(0));
+        ChatMessage older = new ChatMessage();
+        older.setId("msg8");
+        older.setTimestamp(newest.getTimestamp().minusMinutes(1));
+        when(recentMessageCache.firstPage(eq("recipient_sender"), eq(1), any()))
+                .thenReturn(new java.util.ArrayList<>(List.of(older, newest)));
+        when(messageRepository.markReadUpTo("recipient", "sender", newest.getTimestamp())).thenReturn(5000L);
 
         CompletableFuture<SendResult<String, Object>> future = CompletableFuture
                 .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
@@ -329,36 +380,35 @@ class MessageServiceTest {
 
         messageService.markMessagesAsRead("recipient", "sender");
 
-        assertEquals(MessageStatus.READ, msg1.getStatus());
-        verify(messageRepository).saveAll(anyList());
-        verify(hashOperations).delete("unread_counts:recipient", "sender");
-        verify(chatProducer, times(1)).sendStatusMessage(any(ChatMessage.class));
+        verify(readWatermarkRepository).advance("recipient_sender", "recipient", "msg9", newest.getTimestamp());
+        verify(messageRepository).markReadUpTo("recipient", "sender", newest.getTimestamp());
+        verify(messageRepository, never()).saveAll(anyList());
+        verify(unreadCounterService).reset("recipient", "sender");
+        verify(chatProducer, times(1)).sendStatusMessage(argThat(msg -> msg instanceof ChatMessage receipt
+                && newest.getTimestamp().equals(receipt.getTimestamp())));
     }
 
     @Test
-    void testGetUnreadMessageCounts_RedisHit() {
-        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
-        Map<Object, Object> cachedCounts = new HashMap<>();
-        cachedCounts.put("senderA", "5");
-        when(hashOperations.entries("unread_counts:recipient")).thenReturn(cachedCounts);
+    void testMarkMessagesAsRead_EmptyConversation() {
+        CompletableFuture<SendResult<String, Object>> future = CompletableFuture
+                .completedFuture(mock(SendResult.class, RETURNS_DEEP_STUBS));
+        when(chatProducer.sendStatusMessage(any())).thenReturn(future);
 
-        UnreadCountsResponse response = messageService.getUnreadMessageCounts("recipient");
-        assertEquals(5L, response.getUnreadCounts().get("senderA"));
-        verify(messageRepository, never()).countUnreadMessagesBySender(anyString());
+        messageService.markMessagesAsRead("recipient", "sender");
+
+        verifyNoInteractions(readWatermarkRepository);
+        verify(messageRepository, never()).markReadUpTo(anyString(), anyString(), any());
+        verify(unreadCounterService).reset("recipient", "sender");
     }
 
     @Test
-    void testGetUnreadMessageCounts_DbFallback() {
-        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
-        when(hashOperations.entries("unread_counts:recipient")).thenReturn(Collections.emptyMap());
-
-        UnreadCountProjection projection = new UnreadCountProjection("senderA", 3L);
-
-        when(messageRepository.countUnreadMessagesBySender("recipient")).thenReturn(List.of(projection));
+    void testGetUnreadMessageCounts_FromCounterService() {
+        when(unreadCounterService.getCounts("recipient")).thenReturn(Map.of("senderA", 5L));
 
         UnreadCountsResponse response = messageService.getUnreadMessageCounts("recipient");
-        assertEquals(3L, response.getUnreadCounts().get("senderA"));
-        verify(hashOperations).putAll(eq("unread_counts:recipient"), anyMap());
+
+        assertEquals(5L, response.getUnreadCounts().get("senderA"));
+        verify(messageRepository, never()).countUnreadMessagesBySender(anyString());
     }
 
     // ==========================================
@@ -394,12 +444,10 @@ class MessageServiceTest {
         when(messageRepository.findByConversationId(eq("user1_user2"), any(Pageable.class)))
                 .thenReturn(List.of(dbMsg));
 
-        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
-        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
-        java.util.Set<Object> mockSet = java.util.Collections.singleton((Object) redisMsg.getId());
-        when(zSetOperations.reverseRange(anyString(), anyLong(), anyLong())).thenReturn(mockSet);
-        when(hashOperations.multiGet(anyString(), anyCollection()))
-                .thenReturn(java.util.Collections.singletonList(redisMsg));
+        // Cache miss: the loader runs and merges the Redis window with the DB page
+        when(recentMessageCache.firstPage(eq("user1_user2"), eq(11), any()))
+                .thenAnswer(inv -> new java.util.ArrayList<>(inv.<Supplier<List<ChatMessage>>>getArgument(2).get()));
+        when(recentMessageCache.readWindow("user1_user2")).thenReturn(List.of(redisMsg));
 
         when(messageMapper.toResponse(any())).thenReturn(ChatMessageResponse.builder().build());
 
@@ -409,9 +457,61 @@ class MessageServiceTest {
         assertEquals(2, result.getContent().size());
     }
 
+    @Test
+    void testFindPrivateMessageWithCursor_SameMillisecondAcrossCacheAndDatabase() {
+        LocalDateTime sameMillis = LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_000_000);
+        String lowerId = new ObjectId().toHexString();
+        String higherId = new ObjectId().toHexString();
+
+        // A cached copy written before timestamps were truncated still carries sub-millisecond digits
+        ChatMessage redisMsg = new ChatMessage();
+        redisMsg.setId(lowerId);
+        redisMsg.setTimestamp(sameMillis.plusNanos(456_789));
+        ChatMessage dbMsg = new ChatMessage();
+        dbMsg.setId(higherId);
+        dbMsg.setTimestamp(sameMillis);
+
+        when(messageRepository.findByConversationId(eq("user1_user2"), any(Pageable.class)))
+                .thenReturn(List.of(dbMsg));
+        when(recentMessageCache.firstPage(eq("user1_user2"), eq(2), any()))
+                .thenAnswer(inv -> new java.util.ArrayList<>(inv.<Supplier<List<ChatMessage>>>getArgument(2).get()));
+        when(recentMessageCache.readWindow("user1_user2")).thenReturn(List.of(redisMsg));
+        when(messageMapper.toResponse(any()))
+                .thenAnswer(inv -> ChatMessageResponse.builder().id(inv.<ChatMessage>getArgument(0).getId()).build());
+
+        CursorResponse<ChatMessageResponse> result = messageService.findPrivateMessageWithCursor("user2", "user1", null,
+                1);
+
+        // The id breaks the tie, so the next page (timestamp, id) < cursor still holds the cached message
+        assertEquals(higherId, result.getContent().get(0).getId());
+        assertTrue(result.isHasMore());
+        assertEquals(CursorCodec.encode(sameMillis, higherId), result.getNextCursor());
+    }
+
+    @Test
+    void testSendPrivateMessage_CachedAuthorization_SkipsDatabase() {
+        when(sendAuthorizationCache.getRecipientStatus(eq("recipient"), any())).thenReturn(UserStatus.ACTIVE);
+        when(sendAuthorizationCache.isFriend(eq("sender"), eq("recipient"), any())).thenReturn(true);
+
+        ChatMessageRequest request = new ChatMessageRequest();
+        request.setRecipient("recipient");
+        request.setContent("Hello!");
+
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setMessageType(com.web.backend.common.MessageType.CHAT);
+        when(messageMapper.toEntity(request)).thenReturn(chatMessage);
+        when(chatProducer.sendChatMessage(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        messageService.sendPrivateMessage("sender", request);
+
+        verify(userRepository, never()).findUserStatusByUsername(anyString());
+        verify(friendService, never()).isFriend(anyString(), anyString());
+        verify(chatProducer).sendChatMessage(any());
+    }
+
     @Test
     void testSendPrivateMessage_KafkaException() {
-        when(userRepository.findByUsername("recipient")).thenReturn(Optional.of(recipientUser));
+        when(userRepository.findUserStatusByUsername("recipient")).thenReturn(Optional.of(recipientUser.getUserStatus()));
         when(friendService.isFriend("sender", "recipient")).thenReturn(true);
         ChatMessageRequest request = new ChatMessageRequest();
         request.setRecipient("recipient");
@@ -459,7 +559,28 @@ class MessageServiceTest {
         when(chatProducer.sendReaction(any())).thenReturn(future);
 
         messageService.reactToMessage("sender", request);
-        verify(mongoTemplate).updateFirst(any(), any(), eq(ChatMessage.class));
+        verify(mongoTemplate).findAndModify(any(), any(), any(), eq(ChatMessage.class));
+        verify(recentMessageCache, never()).patch(any());
+    }
+
+    @Test
+    void testFindPrivateMessageWithCursor_FirstPage_CacheHit() {
+        List<ChatMessage> window = new java.util.ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            ChatMessage msg = new ChatMessage();
+            msg.setId(new ObjectId().toHexString());
+            msg.setTimestamp(LocalDateTime.now().minusMinutes(i));
+            window.add(msg);
+        }
+        when(recentMessageCache.firstPage(eq("user1_user2"), eq(11), any())).thenReturn(window);
+        when(messageMapper.toResponse(any())).thenReturn(ChatMessageResponse.builder().build());
+
+        CursorResponse<ChatMessageResponse> result = messageService.findPrivateMessageWithCursor("user2", "user1", null,
+                10);
+
+        assertTrue(result.isHasMore());
+        assertEquals(10, result.getContent().size());
+        verify(messageRepository, never()).findByConversationId(anyString(), any());
     }
 
     @Test
@@ -472,14 +593,150 @@ class MessageServiceTest {
         for (int i = 0; i < 11; i++)
             mockResult.add(dbMsg); // 11 elements means hasMore = true
 
-        when(messageRepository.findByConversationIdAndTimestampBefore(anyString(), any(), any()))
+        LocalDateTime cursorTime = LocalDateTime.now().withNano(0);
+        ObjectId cursorId = new ObjectId();
+        when(messageRepository.findByConversationIdBefore(eq("user1_user2"), eq(cursorTime), eq(cursorId), any()))
                 .thenReturn(mockResult);
         when(messageMapper.toResponse(any())).thenReturn(ChatMessageResponse.builder().build());
 
         CursorResponse<ChatMessageResponse> result = messageService.findPrivateMessageWithCursor("user2", "user1",
-                LocalDateTime.now().toString(), 10);
+                CursorCodec.encode(cursorTime, cursorId.toHexString()), 10);
 
         assertTrue(result.isHasMore());
         assertEquals(10, result.getContent().size()); // should have removed the 11th
+        assertEquals(CursorCodec.encode(dbMsg.getTimestamp(), "msg1"), result.getNextCursor());
+    }
+
+    @Test
+    void testFindPrivateMessageWithCursor_InvalidCursor() {
+        assertThrows(InvalidDataException.class,
+                () -> messageService.findPrivateMessageWithCursor("user2", "user1", "not-a-cursor", 10));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void testFindSystemMessageWithCursor_TieBreaksOnId() {
+        Instant timestamp = Instant.parse("2026-01-01T00:00:00Z");
+        ObjectId lastId = new ObjectId();
+        SystemMessage last = new SystemMessage();
+        last.setId(lastId.toHexString());
+        last.setTimestamp(timestamp);
+
+        when(systemMessageRepository.findInitialMessage(any())).thenReturn(List.of(last));
+        when(messageMapper.systemMessageToResponse(any())).thenReturn(MessageSystemResponse.builder().build());
+
+        String nextCursor = messageService.findSystemMessageWithCursor(null, 10).getNextCursor();
+        CursorCodec.Cursor decoded = CursorCodec.decode(nextCursor);
+
+        assertEquals(timestamp, decoded.timestamp());
+        assertEquals(lastId, decoded.id());
+
+        messageService.findSystemMessageWithCursor(nextCursor, 10);
+        verify(systemMessageRepository).findMessageBefore(eq(timestamp), eq(lastId), any());
+    }
+
+    @Test
+    void testFindPrivateMessageChanges_WithoutSinceReturnsWatermark() {
+        when(messageRepository.findCommittedChangeSeq("user1_user2")).thenReturn(42L);
+
+        SyncResponse<ChatMessageResponse> result = messageService.findPrivateMessageChanges("user2", "user1", null,
+                100);
+
+        assertEquals(42L, result.getNextSeq());
+        assertTrue(result.getChanges().isEmpty());
+        assertFalse(result.isHasMore());
+        verify(messageRepository, never()).findChangesBetween(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testFindPrivateMessageChanges_UpToDate() {
+        when(messageRepository.findCommittedChangeSeq("user1_user2")).thenReturn(42L);
+
+        SyncResponse<ChatMessageResponse> result = messageService.findPrivateMessageChanges("user1", "user2", 42L,
+                100);
+
+        assertEquals(42L, result.getNextSeq());
+        assertTrue(result.getChanges().isEmpty());
+        verify(messageRepository, never()).findChangesBetween(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testFindPrivateMessageChanges_PagesUpToCommittedWatermark() {
+        List<ChatMessage> changes = new java.util.ArrayList<>();
+        for (long seq = 11; seq <= 13; seq++) {
+            ChatMessage msg = new ChatMessage();
+            msg.setId("msg" + seq);
+            msg.setChangeSeq(seq);
+            changes.add(msg);
+        }
+        when(messageRepository.findCommittedChangeSeq("user1_user2")).thenReturn(20L);
+        when(messageRepository.findChangesBetween(eq("user1_user2"), eq(10L), eq(20L), any())).thenReturn(changes);
+        when(messageMapper.toResponse(any())).thenReturn(ChatMessageResponse.builder().build());
+
+        SyncResponse<ChatMessageResponse> result = messageService.findPrivateMessageChanges("user1", "user2", 10L, 2);
+
+        assertTrue(result.isHasMore());
+        assertEquals(2, result.getChanges().size());
+        assertEquals(12L, result.getNextSeq());
+    }
+
+    @Test
+    void testFindPrivateMessageChanges_LastPageEndsAtWatermark() {
+        ChatMessage msg = new ChatMessage();
+        msg.setId("msg11");
+        msg.setChangeSeq(11L);
+        when(messageRepository.findCommittedChangeSeq("user1_user2")).thenReturn(20L);
+        when(messageRepository.findChangesBetween(eq("user1_user2"), eq(10L), eq(20L), any())).thenReturn(List.of(msg));
+        when(messageMapper.toResponse(any())).thenReturn(ChatMessageResponse.builder().build());
+
+        SyncResponse<ChatMessageResponse> result = messageService.findPrivateMessageChanges("user1", "user2", 10L, 100);
+
+        assertFalse(result.isHasMore());
+        assertEquals(1, result.getChanges().size());
+        // Sequence numbers of dead-lettered or renumbered records leave gaps; the watermark skips them
+        assertEquals(20L, result.getNextSeq());
+    }
+
+    @Test
+    void testFindConversations_FirstPage() {
+        Conversation conversation = new Conversation();
+        conversation.setId("alice_bob");
+        conversation.setParticipants(List.of("alice", "bob"));
+        conversation.setLastMessageId("msg1");
+        conversation.setLastContent("hi");
+        conversation.setLastTimestamp(LocalDateTime.now().withNano(0));
+        when(conversationRepository.findInbox(eq("alice"), any())).thenReturn(List.of(conversation));
+        when(unreadCounterService.getCounts("alice")).thenReturn(Map.of("bob", 3L, "carol", 1L));
+
+        CursorResponse<ConversationResponse> result = messageService.findConversations("alice", null, 10);
+
+        assertFalse(result.isHasMore());
+        ConversationResponse response = result.getContent().get(0);
+        assertEquals("bob", response.getPeer());
+        assertEquals(3L, response.getUnreadCount());
+        assertEquals(CursorCodec.encode(conversation.getLastTimestamp(), "alice_bob"), result.getNextCursor());
+    }
+
+    @Test
+    void testFindConversations_WithCursorAndHasMore() {
+        LocalDateTime cursorTime = LocalDateTime.now().withNano(0);
+        List<Conversation> page = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Conversation conversation = new Conversation();
+            conversation.setId("alice_user" + i);
+            conversation.setParticipants(List.of("alice", "user" + i));
+            conversation.setLastTimestamp(cursorTime.minusMinutes(i + 1L));
+            page.add(conversation);
+        }
+        when(conversationRepository.findInboxBefore(eq("alice"), eq(cursorTime), eq("alice_zed"), any()))
+                .thenReturn(page);
+
+        CursorResponse<ConversationResponse> result = messageService.findConversations("alice",
+                CursorCodec.encode(cursorTime, "alice_zed"), 2);
+
+        assertTrue(result.isHasMore());
+        assertEquals(2, result.getContent().size());
+        assertEquals(0L, result.getContent().get(0).getUnreadCount());
+        assertEquals(CursorCodec.encode(page.get(1).getLastTimestamp(), "alice_user1"), result.getNextCursor());
     }
 }
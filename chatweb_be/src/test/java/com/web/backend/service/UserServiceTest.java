@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
@@ -30,11 +31,11 @@ import com.web.backend.mapper.UserMapper;
 import com.web.backend.model.*;
 import com.web.backend.repository.MessageRepository;
 import com.web.backend.repository.UserRepository;
-import com.web.backend.repository.FriendshipRepository;
-import org.springframework.context.ApplicationEventPublisher;
+import com.web.backend.service.util.SendAuthorizationCache;
 import com.web.backend.service.impl.UserServiceImpl;
 import com.web.backend.service.util.CuckooFilterService;
 import com.web.backend.service.util.EmailService;
+import com.web.backend.service.util.PresenceFanout;
 
 @ExtendWith(MockitoExtension.class)
  class UserServiceTest {
@@ -56,11 +57,13 @@ import com.web.backend.service.util.EmailService;
     @Mock
     private CuckooFilterService cuckooFilterService;
     @Mock
-    private FriendshipRepository friendshipRepository;
-    @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private PresenceFanout presenceFanout;
     @Mock
     private ValueOperations<String, Object> valueOperations;
+    @Mock
+    private SendAuthorizationCache sendAuthorizationCache;
+    @Mock
+    private CacheManager cacheManager;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -456,13 +459,10 @@ import com.web.backend.service.util.EmailService;
     @Test
     void testSetUserOnlineStatus() {
 
-        when(friendshipRepository.findAllFriendUsernamesByUsername("testuser"))
-                .thenReturn(java.util.List.of("friend1"));
-
         userService.setUserOnlineStatus("testuser", true);
 
         verify(userRepository).updateOnlineStatus("testuser", true);
-        verify(eventPublisher).publishEvent(any(com.web.backend.kafka.payload.FriendPayload.class));
+        verify(presenceFanout).submit("testuser", true);
     }
 
     @Test
@@ -596,4 +596,34 @@ import com.web.backend.service.util.EmailService;
         assertThrows(AccessForbiddenException.class, () -> userService.changePassword("testuser", "old", "new"));
     }
 
+    @Test
+    void testSetUsersOffline_OneUpdateForTheBatch() {
+        List<String> usernames = List.of("alice", "bob");
+        when(userRepository.updateOnlineStatusIn(usernames, false)).thenReturn(2);
+
+        userService.setUsersOffline(usernames);
+
+        verify(userRepository, times(1)).updateOnlineStatusIn(usernames, false);
+        verify(userRepository, never()).updateOnlineStatus(anyString(), anyBoolean());
+        verify(presenceFanout).submitAll(usernames, false);
+    }
+
+    @Test
+    void testSetUsersOnline_OneUpdateForTheBatch() {
+        List<String> usernames = List.of("alice", "bob");
+        when(userRepository.updateOnlineStatusIn(usernames, true)).thenReturn(2);
+
+        userService.setUsersOnline(usernames);
+
+        verify(userRepository, times(1)).updateOnlineStatusIn(usernames, true);
+        verify(presenceFanout).submitAll(usernames, true);
+    }
+
+    @Test
+    void testSetUsersOffline_EmptyBatchSkipsDatabase() {
+        userService.setUsersOffline(List.of());
+
+        verifyNoInteractions(userRepository, presenceFanout);
+    }
+
 }
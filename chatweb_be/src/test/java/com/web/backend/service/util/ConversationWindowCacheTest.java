@@ -0,0 +1,209 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.web.backend.common.MessageStatus;
+import com.web.backend.common.MessageType;
+import com.web.backend.model.ChatMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConversationWindowCacheTest {
+
+    private static final String CONVERSATION_ID = "alice_bob";
+
+    private ConversationWindowCache cache;
+
+    private final LocalDateTime start = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        RecentMessageCache recentMessageCache = mock(RecentMessageCache.class);
+        when(recentMessageCache.getWindowSize()).thenReturn(5);
+        cache = new ConversationWindowCache(recentMessageCache, new SimpleMeterRegistry(), DataSize.ofMegabytes(1),
+                Duration.ofMinutes(10), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testFirstPage_ServedFromHeapAfterLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        List<ChatMessage> stored = messages(4);
+
+        cache.firstPage(CONVERSATION_ID, 3, () -> {
+            loads.incrementAndGet();
+            return stored.subList(0, 3);
+        });
+        List<ChatMessage> page = cache.firstPage(CONVERSATION_ID, 3, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(3, page.size());
+    }
+
+    @Test
+    void testApply_AppendsNewMessagesToCachedWindow() {
+        List<ChatMessage> stored = messages(3);
+        cache.firstPage(CONVERSATION_ID, 10, () -> stored);
+
+        ChatMessage newest = message(start.plusHours(1));
+        cache.apply(List.of(newest));
+
+        List<ChatMessage> page = cache.firstPage(CONVERSATION_ID, 10, List::of);
+        assertEquals(4, page.size());
+        assertEquals(newest.getId(), page.get(0).getId());
+    }
+
+    @Test
+    void testApply_MessagesSeenBeforeLoadAreMerged() {
+        // The record reaches this node before Redis and Mongo have it
+        ChatMessage newest = message(start.plusHours(1));
+        cache.apply(List.of(newest));
+
+        List<ChatMessage> page = cache.firstPage(CONVERSATION_ID, 10, () -> messages(2));
+        assertEquals(2, page.size());
+
+        List<ChatMessage> cached = cache.firstPage(CONVERSATION_ID, 10, List::of);
+        assertEquals(3, cached.size());
+        assertEquals(newest.getId(), cached.get(0).getId());
+    }
+
+    @Test
+    void testApply_EditInvalidatesWindow() {
+        List<ChatMessage> stored = messages(3);
+        cache.firstPage(CONVERSATION_ID, 10, () -> stored);
+
+        ChatMessage edited = message(stored.get(0).getTimestamp());
+        edited.setId(stored.get(0).getId());
+        edited.setEdited(true);
+        cache.apply(List.of(edited));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.firstPage(CONVERSATION_ID, 10, () -> {
+            loads.incrementAndGet();
+            return stored;
+        });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testFirstPage_LoadRacingAnInvalidationIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.firstPage(CONVERSATION_ID, 10, () -> {
+            loads.incrementAndGet();
+            cache.invalidate(CONVERSATION_ID);
+            return messages(2);
+        });
+        cache.firstPage(CONVERSATION_ID, 10, () -> {
+            loads.incrementAndGet();
+            return messages(2);
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testApply_ReadReceiptMarksMessagesRead() {
+        List<ChatMessage> stored = messages(2);
+        cache.firstPage(CONVERSATION_ID, 10, () -> stored);
+
+        ChatMessage receipt = new ChatMessage();
+        receipt.setConversationId(CONVERSATION_ID);
+        receipt.setMessageType(MessageType.STATUS);
+        receipt.setStatus(MessageStatus.READ);
+        receipt.setSender("alice");
+        receipt.setRecipient("bob");
+        cache.apply(List.of(receipt));
+
+        cache.firstPage(CONVERSATION_ID, 10, List::of)
+                .forEach(msg -> assertEquals(MessageStatus.READ, msg.getStatus()));
+    }
+
+    @Test
+    void testApply_ReadReceiptLeavesPagesAlreadyReturned() {
+        cache.firstPage(CONVERSATION_ID, 10, () -> messages(2));
+        List<ChatMessage> before = cache.firstPage(CONVERSATION_ID, 10, List::of);
+
+        ChatMessage receipt = new ChatMessage();
+        receipt.setConversationId(CONVERSATION_ID);
+        receipt.setMessageType(MessageType.STATUS);
+        receipt.setStatus(MessageStatus.READ);
+        receipt.setSender("alice");
+        receipt.setRecipient("bob");
+        cache.apply(List.of(receipt));
+
+        before.forEach(msg -> assertEquals(MessageStatus.SENT, msg.getStatus()));
+        cache.firstPage(CONVERSATION_ID, 10, List::of)
+                .forEach(msg -> assertEquals(MessageStatus.READ, msg.getStatus()));
+    }
+
+    @Test
+    void testApply_ReadReceiptStopsAtItsWatermark() {
+        List<ChatMessage> stored = messages(3);
+        cache.firstPage(CONVERSATION_ID, 10, () -> stored);
+
+        ChatMessage receipt = new ChatMessage();
+        receipt.setConversationId(CONVERSATION_ID);
+        receipt.setMessageType(MessageType.STATUS);
+        receipt.setStatus(MessageStatus.READ);
+        receipt.setSender("alice");
+        receipt.setRecipient("bob");
+        receipt.setTimestamp(stored.get(1).getTimestamp());
+        cache.apply(List.of(receipt));
+
+        List<ChatMessage> page = cache.firstPage(CONVERSATION_ID, 10, List::of);
+        assertEquals(MessageStatus.SENT, page.get(0).getStatus());
+        assertEquals(MessageStatus.READ, page.get(1).getStatus());
+        assertEquals(MessageStatus.READ, page.get(2).getStatus());
+    }
+
+    @Test
+    void testApply_WindowIsTrimmedToWindowSize() {
+        cache.firstPage(CONVERSATION_ID, 10, () -> messages(5));
+
+        cache.apply(List.of(message(start.plusHours(1))));
+
+        // Trimmed windows are no longer complete, so a larger page falls through
+        AtomicInteger loads = new AtomicInteger();
+        cache.firstPage(CONVERSATION_ID, 10, () -> {
+            loads.incrementAndGet();
+            return messages(6);
+        });
+        assertEquals(1, loads.get());
+        assertEquals(5, cache.firstPage(CONVERSATION_ID, 5, List::of).size());
+    }
+
+    private List<ChatMessage> messages(int count) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(message(start.minusMinutes(i)));
+        }
+        return messages;
+    }
+
+    private ChatMessage message(LocalDateTime timestamp) {
+        ChatMessage message = new ChatMessage();
+        message.setId(new ObjectId().toHexString());
+        message.setConversationId(CONVERSATION_ID);
+        message.setMessageType(MessageType.CHAT);
+        message.setSender("alice");
+        message.setRecipient("bob");
+        message.setContent("hello");
+        message.setStatus(MessageStatus.SENT);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
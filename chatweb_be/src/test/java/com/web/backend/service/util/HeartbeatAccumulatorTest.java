@@ -0,0 +1,83 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HeartbeatAccumulatorTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisZSetCommands zSetCommands;
+
+    private HeartbeatAccumulator accumulator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetCommands = mock(RedisZSetCommands.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.zSetCommands()).thenReturn(zSetCommands);
+        doReturn(RedisSerializer.java()).when(redisTemplate).getValueSerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        accumulator = new HeartbeatAccumulator(redisTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_WritesEveryUserInOneZadd() {
+        accumulator.record("alice");
+        accumulator.record("alice");
+        accumulator.record("bob");
+
+        accumulator.flush();
+
+        ArgumentCaptor<Set<Tuple>> tuples = ArgumentCaptor.forClass(Set.class);
+        ArgumentCaptor<ZAddArgs> args = ArgumentCaptor.forClass(ZAddArgs.class);
+        verify(zSetCommands, times(1)).zAdd(any(byte[].class), tuples.capture(), args.capture());
+        assertEquals(2, tuples.getValue().size());
+        assertTrue(args.getValue().contains(ZAddArgs.Flag.XX));
+        assertTrue(args.getValue().contains(ZAddArgs.Flag.GT));
+    }
+
+    @Test
+    void testFlush_NothingRecordedSkipsRedis() {
+        accumulator.record("alice");
+        accumulator.flush();
+
+        accumulator.flush();
+
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    void testFlush_FailedBatchIsRetried() {
+        when(zSetCommands.zAdd(any(byte[].class), anySet(), any(ZAddArgs.class)))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(1L);
+        accumulator.record("alice");
+
+        accumulator.flush();
+        accumulator.flush();
+
+        verify(zSetCommands, times(2)).zAdd(any(byte[].class), anySet(), any(ZAddArgs.class));
+    }
+}
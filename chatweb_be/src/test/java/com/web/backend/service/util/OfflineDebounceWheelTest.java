@@ -0,0 +1,55 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OfflineDebounceWheelTest {
+
+    private OfflineDebounceWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new OfflineDebounceWheel(Duration.ofMillis(30), 5, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testAdvance_ExpiresAfterTheDelayOnce() throws InterruptedException {
+        wheel.schedule("alice");
+        wheel.schedule("bob");
+
+        assertTrue(wheel.advance().isEmpty());
+        Thread.sleep(60);
+
+        List<String> expired = wheel.advance();
+        assertEquals(2, expired.size());
+        assertTrue(expired.containsAll(List.of("alice", "bob")));
+        assertTrue(wheel.advance().isEmpty());
+    }
+
+    @Test
+    void testCancel_ReconnectDropsThePendingOffline() throws InterruptedException {
+        wheel.schedule("alice");
+
+        assertTrue(wheel.cancel("alice"));
+        assertFalse(wheel.cancel("alice"));
+        Thread.sleep(60);
+
+        assertTrue(wheel.advance().isEmpty());
+    }
+
+    @Test
+    void testSchedule_RescheduleKeepsOneEntry() throws InterruptedException {
+        wheel.schedule("alice");
+        wheel.schedule("alice");
+        Thread.sleep(60);
+
+        assertEquals(List.of("alice"), wheel.advance());
+    }
+}
@@ -0,0 +1,125 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.web.backend.common.NotificationsType;
+import com.web.backend.kafka.payload.FriendPayload;
+import com.web.backend.repository.FriendshipRepository;
+import com.web.backend.repository.projection.FriendPairProjection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PresenceFanoutTest {
+
+    private ZSetOperations<String, Object> zSetOperations;
+
+    private FriendshipRepository friendshipRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        friendshipRepository = mock(FriendshipRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    }
+
+    private PresenceFanout fanout(Duration window) {
+        return new PresenceFanout(redisTemplate, friendshipRepository, eventPublisher, new SimpleMeterRegistry(),
+                window);
+    }
+
+    @Test
+    void testFlush_OnlyOnlineFriendsAreNotified() {
+        PresenceFanout fanout = fanout(Duration.ZERO);
+        when(friendshipRepository.findAcceptedFriendPairs(anyCollection())).thenReturn(List.of(
+                new FriendPairProjection("alice", "carol"),
+                new FriendPairProjection("dave", "alice")));
+        when(zSetOperations.score(eq("online_users"), any(Object[].class)))
+                .thenAnswer(invocation -> Arrays.stream((Object[]) invocation.getArgument(1))
+                        .map(member -> "carol".equals(member) ? 1.0 : null)
+                        .toList());
+
+        fanout.submit("alice", true);
+        fanout.flush();
+
+        ArgumentCaptor<FriendPayload> payload = ArgumentCaptor.forClass(FriendPayload.class);
+        verify(eventPublisher, times(1)).publishEvent(payload.capture());
+        assertEquals(List.of("carol"), payload.getValue().recipientUsernames());
+        assertEquals(NotificationsType.USER_ONLINE, payload.getValue().recipientStatus());
+    }
+
+    @Test
+    void testFlush_FlapsAreAnnouncedOnceWithTheFinalState() {
+        PresenceFanout fanout = fanout(Duration.ZERO);
+        when(friendshipRepository.findAcceptedFriendPairs(anyCollection()))
+                .thenReturn(List.of(new FriendPairProjection("alice", "carol")));
+        when(zSetOperations.score(eq("online_users"), any(Object[].class))).thenReturn(Arrays.asList(1.0));
+
+        fanout.submit("alice", true);
+        fanout.submit("alice", false);
+        fanout.submit("alice", true);
+        fanout.flush();
+
+        ArgumentCaptor<FriendPayload> payload = ArgumentCaptor.forClass(FriendPayload.class);
+        verify(eventPublisher, times(1)).publishEvent(payload.capture());
+        assertEquals(NotificationsType.USER_ONLINE, payload.getValue().recipientStatus());
+    }
+
+    @Test
+    void testFlush_WindowEndingInItsStartingStateIsDropped() {
+        PresenceFanout fanout = fanout(Duration.ZERO);
+
+        fanout.submit("alice", false);
+        fanout.submit("alice", true);
+        fanout.flush();
+
+        verifyNoInteractions(friendshipRepository, eventPublisher);
+    }
+
+    @Test
+    void testFlush_ReturnAfterAnotherNodeAnnouncedOfflineIsAnnounced() {
+        PresenceFanout fanout = fanout(Duration.ZERO);
+        when(friendshipRepository.findAcceptedFriendPairs(anyCollection()))
+                .thenReturn(List.of(new FriendPairProjection("alice", "carol")));
+        when(zSetOperations.score(eq("online_users"), any(Object[].class))).thenReturn(Arrays.asList(1.0));
+        fanout.submit("alice", true);
+        fanout.flush();
+
+        // The zombie sweep or a lease reclaim on another node announced alice offline meanwhile
+        fanout.submit("alice", true);
+        fanout.flush();
+
+        ArgumentCaptor<FriendPayload> payload = ArgumentCaptor.forClass(FriendPayload.class);
+        verify(eventPublisher, times(2)).publishEvent(payload.capture());
+        assertEquals(NotificationsType.USER_ONLINE, payload.getValue().recipientStatus());
+    }
+
+    @Test
+    void testFlush_ChangesInsideTheWindowWait() {
+        PresenceFanout fanout = fanout(Duration.ofMinutes(1));
+
+        fanout.submit("alice", false);
+        fanout.flush();
+
+        verifyNoInteractions(friendshipRepository, eventPublisher);
+    }
+}
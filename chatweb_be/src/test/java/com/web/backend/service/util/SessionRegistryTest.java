@@ -0,0 +1,162 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.web.backend.config.ServerIdentity;
+import com.web.backend.service.util.SessionRegistry.ReclaimedUser;
+
+class SessionRegistryTest {
+
+    private static final String NODE_KEY = "presence:node:" + ServerIdentity.SERVER_ID;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisScriptingCommands scriptingCommands;
+
+    private RedisHashCommands hashCommands;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private SessionRegistry sessionRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        scriptingCommands = mock(RedisScriptingCommands.class);
+        hashCommands = mock(RedisHashCommands.class);
+        hashOperations = mock(HashOperations.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        doReturn(RedisSerializer.string()).when(redisTemplate).getValueSerializer();
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        sessionRegistry = new SessionRegistry(redisTemplate, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testRegister_ReturnsTheSessionsAcrossNodes() {
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(3), any(byte[][].class)))
+                .thenReturn(2L);
+
+        assertEquals(2L, sessionRegistry.register("alice"));
+
+        List<String> keysAndArgs = captureEval(ReturnType.INTEGER, 3);
+        assertEquals(List.of(NODE_KEY, "online_users_count", "online_users", "alice", "alice"),
+                keysAndArgs.subList(0, 5));
+    }
+
+    @Test
+    void testUnregister_ReturnsTheSessionsLeft() {
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), any(byte[][].class)))
+                .thenReturn(0L);
+
+        assertEquals(0L, sessionRegistry.unregister("alice"));
+
+        assertEquals(List.of(NODE_KEY, "online_users_count", "alice"), captureEval(ReturnType.INTEGER, 2));
+    }
+
+    @Test
+    void testUnregister_NoReplyCountsAsOffline() {
+        assertEquals(0L, sessionRegistry.unregister("alice"));
+    }
+
+    @Test
+    void testClearIfOffline_DropsTheRoutesInTheSameScript() {
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.MULTI), eq(2), any(byte[][].class)))
+                .thenReturn(List.of(bytes("alice")));
+
+        assertEquals(List.of("alice"), sessionRegistry.clearIfOffline(List.of("alice", "bob")));
+
+        assertEquals(List.of("online_users_count", "online_users", "ws:routing:", "alice", "alice", "bob", "bob"),
+                captureEval(ReturnType.MULTI, 2));
+    }
+
+    @Test
+    void testFindOffline_SkipsUsersThatReconnected() {
+        when(hashCommands.hMGet(any(byte[].class), any(byte[][].class)))
+                .thenReturn(Arrays.asList(null, bytes("1"), bytes("0")));
+
+        assertEquals(List.of("alice", "carol"), sessionRegistry.findOffline(List.of("alice", "bob", "carol")));
+    }
+
+    @Test
+    void testReclaim_SplitsOfflineUsersFromMovedRoutes() {
+        Set<Object> usernames = new LinkedHashSet<>(List.of("alice", "bob"));
+        when(hashOperations.keys("presence:node:dead")).thenReturn(usernames);
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.MULTI), eq(5), any(byte[][].class)))
+                .thenReturn(List.of(bytes("alice"), bytes(""), bytes("bob"), bytes("live")));
+
+        List<ReclaimedUser> reclaimed = sessionRegistry.reclaim("dead");
+
+        assertEquals(List.of(new ReclaimedUser("alice", null), new ReclaimedUser("bob", "live")), reclaimed);
+        List<String> keysAndArgs = captureEval(ReturnType.MULTI, 5);
+        assertEquals(List.of("presence:node:dead", "online_users_count", "online_users", "presence:lease:dead",
+                "presence:nodes", "dead"), keysAndArgs.subList(0, 6));
+        assertEquals(List.of("alice", "alice", "bob", "bob"), keysAndArgs.subList(8, 12));
+    }
+
+    @Test
+    void testSync_LargeNodesAreWrittenInBatches() {
+        Map<String, Integer> sessions = new HashMap<>();
+        for (int i = 0; i < 501; i++) {
+            sessions.put("user" + i, 1);
+        }
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.MULTI), eq(5), any(byte[][].class)))
+                .thenReturn(List.of(bytes("user1")), List.of(bytes("user2")));
+
+        List<String> restored = sessionRegistry.sync(sessions);
+
+        assertEquals(List.of("user1", "user2"), restored);
+        verify(scriptingCommands, times(2)).eval(any(byte[].class), eq(ReturnType.MULTI), eq(5), any(byte[][].class));
+    }
+
+    @Test
+    void testSync_NoSessionsStillTakesTheLease() {
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.MULTI), eq(5), any(byte[][].class)))
+                .thenReturn(List.of());
+
+        assertTrue(sessionRegistry.sync(Map.of()).isEmpty());
+
+        List<String> keysAndArgs = captureEval(ReturnType.MULTI, 5);
+        assertEquals("presence:lease:" + ServerIdentity.SERVER_ID, keysAndArgs.get(3));
+        assertEquals(8, keysAndArgs.size());
+    }
+
+    private List<String> captureEval(ReturnType returnType, int numKeys) {
+        ArgumentCaptor<byte[][]> keysAndArgs = ArgumentCaptor.forClass(byte[][].class);
+        verify(scriptingCommands).eval(any(byte[].class), eq(returnType), eq(numKeys), keysAndArgs.capture());
+        return Arrays.stream(keysAndArgs.getValue())
+                .map(value -> new String(value, StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
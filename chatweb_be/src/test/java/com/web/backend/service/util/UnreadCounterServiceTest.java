@@ -0,0 +1,86 @@
+package com.web.backend.service.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.web.backend.repository.MessageRepository;
+import com.web.backend.repository.projection.UnreadCountProjection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UnreadCounterServiceTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private MessageRepository messageRepository;
+
+    private UnreadCounterService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        messageRepository = mock(MessageRepository.class);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        service = new UnreadCounterService(stringRedisTemplate, messageRepository, new SimpleMeterRegistry(),
+                Duration.ofDays(7));
+    }
+
+    @Test
+    void testGetCounts_PrimedHashIsServedFromRedis() {
+        Map<Object, Object> cached = new HashMap<>();
+        cached.put(UnreadCounterService.PRIMED_FIELD_STRING, "1");
+        cached.put("alice", "5");
+        cached.put("bob", "0");
+        when(hashOperations.entries("unread:counts:carol")).thenReturn(cached);
+
+        Map<String, Long> counts = service.getCounts("carol");
+
+        assertEquals(Map.of("alice", 5L), counts);
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void testGetCounts_PrimedHashWithoutCountersMeansNothingUnread() {
+        when(hashOperations.entries("unread:counts:carol"))
+                .thenReturn(Map.of(UnreadCounterService.PRIMED_FIELD_STRING, "1"));
+
+        assertTrue(service.getCounts("carol").isEmpty());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void testGetCounts_MissPrimesFromMongo() {
+        when(hashOperations.entries("unread:counts:carol")).thenReturn(Map.of("alice", "9"));
+        when(messageRepository.countUnreadMessagesBySender("carol"))
+                .thenReturn(List.of(new UnreadCountProjection("alice", 3L)));
+
+        Map<String, Long> counts = service.getCounts("carol");
+
+        // Counters that were never primed are not trusted
+        assertEquals(Map.of("alice", 3L), counts);
+        verify(stringRedisTemplate).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    void testReset_DropsTheSenderField() {
+        service.reset("carol", "alice");
+
+        verify(hashOperations).delete("unread:counts:carol", "alice");
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useEffect, useState, useCallback } from "react";
+import React, { useEffect, useState, useCallback, useRef } from "react";
 import { useDispatch, useSelector } from "react-redux";
 import { useTranslation } from "react-i18next";
 import { User, MessageSquare } from "lucide-react";
@@ -32,6 +32,8 @@ const ChatLayout = () => {
   const [showSystemModal, setShowSystemModal] = useState(false);
 
   const [cursor, setCursor] = useState(null);
+  // Change sequence of the active chat the loaded messages are known to be current at
+  const syncSeqRef = useRef(null);
   const [unreadCounts, setUnreadCounts] = useState({});
 
   // Fetch contacts list
@@ -112,15 +114,15 @@ const ChatLayout = () => {
   useEffect(() => {
     webSocketClient.connect(() => {
       console.log("WebSocket connected from ChatLayout");
+      // Also runs on every reconnect: fetch what changed while we were away
+      syncMissedChanges();
     });
 
     webSocketClient.on("onSystemMessage", (msg) => {
       setCurrentSystemMessage(msg);
     });
 
-    webSocketClient.on("onMessageReceived", (socketResponse) => {
-      const msg = socketResponse.data;
-
+    const handleMessage = (msg) => {
       // Handle STATUS message (Read receipts)
       if (msg.messageType === "STATUS" && msg.status === "READ") {
         if (msg.sender === activeChat || msg.recipient === activeChat) {
@@ -189,6 +191,34 @@ const ChatLayout = () => {
           }));
         }
       }
+    };
+
+    const syncMissedChanges = async () => {
+      if (!activeChat || !currentUser?.username || syncSeqRef.current == null) return;
+      try {
+        let hasMore = true;
+        while (hasMore) {
+          const res = await apiClient.get("/api/messages/private/changes", {
+            params: {
+              peer: activeChat,
+              since: syncSeqRef.current,
+            },
+          });
+          const sync = res.data.data || {};
+          (sync.changes || []).forEach(handleMessage);
+          syncSeqRef.current = sync.nextSeq;
+          hasMore = sync.hasMore;
+        }
+      } catch (err) {
+        console.error("Failed to sync missed changes", err);
+      }
+    };
+
+    webSocketClient.on("onMessageReceived", (socketResponse) => {
+      // ACK frames carry every message of the sender persisted in one batch
+      const messages =
+        socketResponse.type === "ACK" ? socketResponse.data : [socketResponse.data];
+      messages.forEach(handleMessage);
     });
 
     webSocketClient.on("onNotification", (socketResponse) => {
@@ -240,6 +270,12 @@ const ChatLayout = () => {
         };
         if (isLoadMore && cursor) {
           params.cursor = cursor;
+        } else {
+          // Take the sync starting point before reading history so nothing falls in between
+          const syncRes = await apiClient.get("/api/messages/private/changes", {
+            params: { peer: activeChat },
+          });
+          syncSeqRef.current = syncRes.data.data?.nextSeq ?? null;
         }
 
         const res = await apiClient.get("/api/messages/private", { params });
@@ -270,13 +306,9 @@ const ChatLayout = () => {
           setMessages(formatted);
         }
 
-        // Set cursor for next load (assuming oldest message ID or date)
-        if (newMessages.length === params.size) {
-          setHasMoreMessages(true);
-          setCursor(newMessages[newMessages.length - 1].id); // or createdAt depending on backend implementation
-        } else {
-          setHasMoreMessages(false);
-        }
+        // The cursor is opaque; pass back exactly what the server returned
+        setHasMoreMessages(Boolean(res.data.data?.hasMore));
+        setCursor(res.data.data?.nextCursor ?? null);
       } catch (err) {
         console.error("Failed to load messages", err);
       } finally {
@@ -289,6 +321,7 @@ const ChatLayout = () => {
   useEffect(() => {
     setMessages([]);
     setCursor(null);
+    syncSeqRef.current = null;
     setHasMoreMessages(false);
     loadMessages(false);
   }, [activeChat]); // Removed loadMessages from dependency array to prevent infinite loops